@@ -0,0 +1,74 @@
+package judahzone.bench;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import judahzone.data.Recording;
+import judahzone.util.FromDisk;
+import judahzone.util.Phase;
+import judahzone.util.WavConstants;
+import judahzone.util.WavWriter;
+
+/** .wav decode: memory-mapped FromDisk.load(File) vs the original stream decoder (ms/file).
+ * The file stays in the page cache, so this measures decode cost, not the disk. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiskBench implements WavConstants {
+
+	@Param({"10", "60"})
+	int seconds;
+
+	File wav;
+
+	@Setup
+	public void setup() throws IOException {
+		wav = File.createTempFile("bench", WAV_EXT);
+		float[][] block = new float[STEREO][JACK_BUFFER];
+		Phase phase = new Phase();
+		try (WavWriter out = new WavWriter(wav)) {
+			for (int b = 0, n = seconds * S_RATE / JACK_BUFFER; b < n; b++) {
+				for (int i = 0; i < JACK_BUFFER; i++)
+					block[LEFT][i] = block[RIGHT][i] = 0.5f * Phase.sin(phase.next(220f / S_RATE));
+				out.write(block);
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		wav.delete();
+	}
+
+	@Benchmark
+	public Recording mmap() throws IOException {
+		Recording rec = new Recording();
+		new FromDisk().load(wav, RUN_LEVEL, rec);
+		return rec;
+	}
+
+	@Benchmark
+	public Recording stream() throws IOException {
+		Recording rec = new Recording();
+		new FromDisk().load(new FileInputStream(wav), RUN_LEVEL, rec); // closes the stream
+		return rec;
+	}
+}
@@ -0,0 +1,96 @@
+package judahzone.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import judahzone.util.AudioMetrics;
+import judahzone.util.Constants;
+import judahzone.util.Filters;
+import judahzone.util.Filters.Coeffs;
+import judahzone.util.Filters.FilterType;
+import judahzone.util.Phase;
+
+/** per-buffer DSP kernels: biquad, meters and the sine LUT (ns/buffer for all voices). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DspBench {
+
+	@Param({"128", "256", "512"})
+	int bufSize;
+
+	@Param({"1", "8", "32"})
+	int voices;
+
+	float[][] audio;
+	float[][] state;
+	Phase[] phases;
+	Coeffs lp;
+	float inc;
+
+	@Setup
+	public void setup() {
+		SplittableRandom rnd = new SplittableRandom(42);
+		audio = new float[voices][bufSize];
+		state = new float[voices][4];
+		phases = new Phase[voices];
+		for (int v = 0; v < voices; v++) {
+			for (int i = 0; i < bufSize; i++)
+				audio[v][i] = (float) (rnd.nextDouble() * 2 - 1) * 0.25f;
+			phases[v] = new Phase();
+		}
+		lp = Filters.compute(FilterType.LowPass, 1200f, Constants.sampleRate());
+		lp.normalize();
+		inc = 440f / Constants.sampleRate();
+	}
+
+	@Benchmark
+	public void sanatize() {
+		for (int v = 0; v < voices; v++)
+			Filters.sanatize(audio[v], bufSize, lp.b0, lp.b1, lp.b2, lp.a1, lp.a2, state[v]);
+	}
+
+	@Benchmark
+	public float rms() {
+		float sum = 0f;
+		for (int v = 0; v < voices; v++)
+			sum += AudioMetrics.rms(audio[v]);
+		return sum;
+	}
+
+	@Benchmark
+	public float peak() {
+		float max = 0f;
+		for (int v = 0; v < voices; v++)
+			max = Math.max(max, AudioMetrics.peak(audio[v]));
+		return max;
+	}
+
+	/** oscillator inner loop: phase accumulator + LUT */
+	@Benchmark
+	public float sin() {
+		float sum = 0f;
+		for (int v = 0; v < voices; v++) {
+			Phase p = phases[v];
+			float[] out = audio[v];
+			for (int i = 0; i < bufSize; i++)
+				sum += out[i] = Phase.sin(p.next(inc));
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,95 @@
+package judahzone.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import judahzone.data.Letter;
+import judahzone.prism.Envelope;
+import judahzone.prism.EnvelopeBank;
+import judahzone.util.Constants;
+
+/** Envelope.process(float[], int) over a bank of voices (ns/buffer for all voices), against EnvelopeBank.
+ * Voices sit in a long sustain so every sample runs the segment math; idle voices are retriggered. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EnvelopeBench {
+
+	@Param({"128", "256", "512"})
+	int bufSize;
+
+	@Param({"1", "8", "32"})
+	int voices;
+
+	Envelope[] envs;
+	EnvelopeBank bank;
+	float[][] mono;
+
+	@Setup
+	public void setup() {
+		int sr = Constants.sampleRate();
+		Letter adsr = new Letter(sr / 100, sr / 10, 0.7f, sr / 5);
+		envs = new Envelope[voices];
+		mono = new float[voices][bufSize];
+		for (int v = 0; v < voices; v++) {
+			envs[v] = new Envelope(adsr);
+			envs[v].trigger();
+		}
+		bank = new EnvelopeBank(voices, adsr);
+		for (int v = 0; v < voices; v++)
+			bank.trigger(v);
+	}
+
+	@Benchmark
+	public int process() {
+		int total = 0;
+		for (int v = 0; v < voices; v++) {
+			float[] buf = mono[v];
+			Arrays.fill(buf, 0.5f);
+			if (!envs[v].isPlaying())
+				envs[v].trigger();
+			total += envs[v].process(buf, bufSize);
+		}
+		return total;
+	}
+
+	/** per-sample API, same work */
+	@Benchmark
+	public float scalar() {
+		float sum = 0f;
+		for (int v = 0; v < voices; v++) {
+			Envelope env = envs[v];
+			if (!env.isPlaying())
+				env.trigger();
+			for (int i = 0; i < bufSize; i++)
+				sum += env.process();
+		}
+		return sum;
+	}
+
+	/** structure-of-arrays, all voices in one pass */
+	@Benchmark
+	public int bank() {
+		for (int v = 0; v < voices; v++) {
+			Arrays.fill(mono[v], 0.5f);
+			if (!bank.isPlaying(v))
+				bank.trigger(v);
+		}
+		return bank.process(mono, bufSize);
+	}
+}
@@ -0,0 +1,117 @@
+package judahzone.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import judahzone.util.Ramp;
+
+/** per-sample parameter smoothing across voices (ns/buffer): util.Ramp against the all-volatile
+ * design it replaced (kept here as {@link VolatileRamp}). Every voice ramps continuously. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RampBench {
+
+	@Param({"128", "512"})
+	int bufSize;
+
+	@Param({"8", "64", "256"})
+	int voices;
+
+	Ramp[] ramps;
+	VolatileRamp[] legacy;
+	int flip;
+
+	@Setup
+	public void setup() {
+		ramps = new Ramp[voices];
+		legacy = new VolatileRamp[voices];
+		for (int v = 0; v < voices; v++) {
+			ramps[v] = new Ramp(bufSize * 4);
+			legacy[v] = new VolatileRamp(bufSize * 4);
+			ramps[v].setTarget(0f);
+			legacy[v].setTarget(0f);
+		}
+	}
+
+	@Benchmark
+	public float ramp() {
+		float sum = 0f;
+		float target = (++flip & 4) == 0 ? 1f : 0f;
+		for (int v = 0; v < voices; v++) {
+			Ramp r = ramps[v];
+			if (!r.isRamping())
+				r.setTarget(target);
+			for (int i = 0; i < bufSize; i++)
+				sum += r.next();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public float volatileRamp() {
+		float sum = 0f;
+		float target = (++flip & 4) == 0 ? 1f : 0f;
+		for (int v = 0; v < voices; v++) {
+			VolatileRamp r = legacy[v];
+			if (!r.isRamping())
+				r.setTarget(target);
+			for (int i = 0; i < bufSize; i++)
+				sum += r.next();
+		}
+		return sum;
+	}
+
+	/** baseline: the pre-VarHandle Ramp (every field volatile) */
+	static final class VolatileRamp {
+		private final int rampLen;
+		private final float invRamp;
+		private volatile int countdown;
+		private volatile float current;
+		private volatile float target;
+		private volatile float step;
+
+		VolatileRamp(int rampLen) {
+			this.rampLen = rampLen;
+			this.invRamp = 1f / rampLen;
+		}
+
+		synchronized void setTarget(float value) {
+			target = value;
+			countdown = rampLen;
+			step = (target - current) * invRamp;
+		}
+
+		float next() {
+			int c = countdown;
+			if (c > 0) {
+				current += step;
+				c--;
+				countdown = c;
+				if (c == 0) {
+					current = target;
+					step = 0f;
+				}
+			}
+			return current;
+		}
+
+		boolean isRamping() {
+			return countdown > 0;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package judahzone.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import judahzone.prism.AnyThread;
+import judahzone.prism.IntRing;
+import judahzone.prism.ManyToOne;
+import judahzone.prism.OffThread;
+import judahzone.prism.OnThread;
+
+/** prism rings: one buffer's worth of offer+poll on a single thread (ns/buffer),
+ * plus a producer/consumer pair across cores (ops/us). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RingBench {
+
+	@Param({"128", "256", "512"})
+	int bufSize;
+
+	IntRing ints;
+	int[] burst;
+	OffThread<Object> off;
+	OnThread<Object> on;
+	AnyThread<Object> any;
+	ManyToOne<Object> many;
+	final Object token = new Object();
+
+	@Setup
+	public void setup() {
+		ints = new IntRing(bufSize * 2);
+		burst = new int[bufSize];
+		off = new OffThread<>(bufSize * 2);
+		on = new OnThread<>(bufSize * 2);
+		any = new AnyThread<>(bufSize * 2);
+		many = new ManyToOne<>(bufSize * 2);
+	}
+
+	@Benchmark
+	public int intRing() {
+		for (int i = 0; i < bufSize; i++)
+			ints.offer(i);
+		int sum = 0;
+		for (int i = 0; i < bufSize; i++)
+			sum += ints.poll();
+		return sum;
+	}
+
+	/** same traffic through offer(int[], n) / drainTo(int[]): one publish per side */
+	@Benchmark
+	public int intRingBulk() {
+		ints.offer(burst, bufSize);
+		return ints.drainTo(burst);
+	}
+
+	@Benchmark
+	public int offThreadDrain(Blackhole bh) {
+		for (int i = 0; i < bufSize; i++)
+			off.offer(token);
+		return off.drain(bh::consume);
+	}
+
+	@Benchmark
+	public void offThread(Blackhole bh) {
+		for (int i = 0; i < bufSize; i++)
+			off.offer(token);
+		for (int i = 0; i < bufSize; i++)
+			bh.consume(off.poll());
+	}
+
+	@Benchmark
+	public void onThread(Blackhole bh) {
+		for (int i = 0; i < bufSize; i++)
+			on.offer(token);
+		for (int i = 0; i < bufSize; i++)
+			bh.consume(on.poll());
+	}
+
+	@Benchmark
+	public void anyThread(Blackhole bh) {
+		for (int i = 0; i < bufSize; i++)
+			any.offer(token);
+		for (int i = 0; i < bufSize; i++)
+			bh.consume(any.poll());
+	}
+
+	@Benchmark
+	public int manyToOne(Blackhole bh) {
+		for (int i = 0; i < bufSize; i++)
+			many.offer(token);
+		return many.drain(bh::consume);
+	}
+
+	/** cross-core handoff, the RT -> UI shape OffThread is built for */
+	@State(Scope.Group)
+	public static class Shared {
+		final OffThread<Object> ring = new OffThread<>(1024);
+		final Object token = new Object();
+	}
+
+	@Benchmark
+	@Group("spsc")
+	@GroupThreads(1)
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public boolean producer(Shared s) {
+		return s.ring.offer(s.token);
+	}
+
+	@Benchmark
+	@Group("spsc")
+	@GroupThreads(1)
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Object consumer(Shared s) {
+		return s.ring.poll();
+	}
+}
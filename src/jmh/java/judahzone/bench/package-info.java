@@ -0,0 +1,9 @@
+/**JMH micro-benchmarks of the real-time hot paths, compiled as test sources by the <code>jmh</code> Maven
+ * profile (never part of the library jar):
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec                                   # all suites, with allocation rate
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="RingBench -p bufSize=256"
+ * </pre>
+ * Time/op is per jack buffer (all voices) unless noted; compare against the buffer budget
+ * (bufSize / sampleRate, e.g. 10.7 ms at 512/48k). gc.alloc.rate.norm on the RT suites should read ~0 B/op. */
+package judahzone.bench;
@@ -2,10 +2,10 @@ package judahzone.api;
 
 import java.io.Closeable;
 
-import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.Receiver;
 import javax.sound.midi.ShortMessage;
 
+import judahzone.prism.PackedMidi;
 import judahzone.util.Notes;
 
 /** - MidiOut: channel-agnostic base, stubs if ProgChange not supported. Provides actives[] snapshot.
@@ -30,6 +30,14 @@ public interface MidiOut extends Receiver, Closeable {
 	/** data1 of active notes */
 	int[] actives();
 
+	/** Send a {@link PackedMidi} event. The default converts to a Midi (allocates);
+	 * engines on the RT path override it to read the int directly. */
+	default void send(int packed, long timeStamp) {
+		Midi midi = PackedMidi.toMidi(packed);
+		if (midi != null)
+			send(midi, timeStamp);
+	}
+
 	/** remove any active note matching data1 (0..127). */
 	void off(int data1);
 
@@ -43,14 +51,15 @@ public interface MidiOut extends Receiver, Closeable {
 		void setPedal(boolean hold);
 		void on(ShortMessage velocity);
 		Notes getNotes();
+		/** note off on every key and all-notes-off (packed, garbage-free where send(int, long) is overridden),
+		 * then clear Notes */
 		default void panic() { // test? / overkill? If we trusted actives, we could flush
-		    try {
-		        for (int note = 0; note < 128; note++) {
-		            ShortMessage m = new ShortMessage(ShortMessage.NOTE_OFF, 0, note, 0);
-		            send(m, 0);
-		        }
-		    } catch (InvalidMidiDataException ignored) {
-		    }
+			for (int note = 0; note < 128; note++)
+				send(PackedMidi.noteOff(0, note), 0);
+			send(PackedMidi.allNotesOff(0), 0); // also what the receiver holds itself (sustain, latches)
+			Notes notes = getNotes();
+			if (notes != null)
+				notes.panic();
 		}
 
 
@@ -100,6 +109,8 @@ Core concepts (short)
     allocation-free when routed to an engine's MidiOut.
 - Notes (RT/UI split):
   - RT path: allocation-free update of a primitive `actives[]` and volatile flags (mono, pedal).
+    Engines call `notes.sync()` (RTNotes) once per buffer on the audio thread: UI note-ons and setMono()
+    are queued for the RT side and only take effect there.
   - UI path: `notes.update()` rebuilds the snapshot used for display. A ping mechanism notifies UI.
   - Engines must create and own Notes instances and inject them into PianoTrack via `setNotes(...)`.
 - MidiBus / SynthEngine:
@@ -10,6 +10,8 @@ public interface PlayAudio {
 		/** play on repeat */ LOOP
 		}
 
+	/** The player doesn't own the Asset: whoever loaded it calls {@link Asset#close()} when it's retired.
+	 * A {@link judahzone.data.Streaming} recording is read with play(int) on the RT thread, not get(int). */
 	void setRecording(Asset a);
 
 	void play(boolean onOrOff);
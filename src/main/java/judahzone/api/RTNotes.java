@@ -2,6 +2,8 @@ package judahzone.api;
 
 import javax.sound.midi.ShortMessage;
 
+import judahzone.prism.PackedMidi;
+
 /* tracks active voices of a MIDI channel (call from audio/MIDI RT threads).*/
 public interface RTNotes {
 
@@ -14,6 +16,19 @@ public interface RTNotes {
 
 	boolean isNoteOn(int data1);
 
+	/** Apply work queued from the UI (virtual keyboard note-ons, a mono switch). Engines call this once
+	 * per buffer on the audio thread, otherwise UI notes wait for the next MIDI event. Allocation-free. */
+	default void sync() { }
+
+	/** note on/off as a {@link PackedMidi} int, other messages ignored. The default allocates
+	 * a Midi for note on; Notes overrides it allocation-free. */
+	default void receive(int packed) {
+		if (PackedMidi.isNoteOff(packed))
+			off(PackedMidi.data1(packed));
+		else if (PackedMidi.isNoteOn(packed))
+			on(PackedMidi.toMidi(packed));
+	}
+
 	boolean isPedal();
 	void setPedal(boolean hold);
 
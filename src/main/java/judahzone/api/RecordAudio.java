@@ -1,5 +1,7 @@
 package judahzone.api;
 
+/** Audio capture. Implementations that want captured blocks on disk while recording (crash-safe,
+ * no heap growth on long takes) can push them through {@link judahzone.util.WriteBehind}. */
 public interface RecordAudio {
 
 	/** start or stop recording */
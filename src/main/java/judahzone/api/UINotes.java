@@ -23,6 +23,14 @@ public interface UINotes {
 
 	int[] actives();
 
+	/** copy active keys into keys without allocating. @return keys copied */
+	default int actives(int[] keys) {
+		int[] a = actives();
+		int n = Math.min(a.length, keys.length);
+		System.arraycopy(a, 0, keys, 0, n);
+		return n;
+	}
+
 
 
 }
\ No newline at end of file
@@ -1,11 +1,21 @@
 package judahzone.data;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
 
 
 
-public record Asset(String name, File file, Recording recording, long samples, Category category) {
+public record Asset(String name, File file, Recording recording, long samples, Category category) implements Closeable {
 
 public enum Category { DRUMS, STEPSAMPLE, SAMPLER, TRACK, USER} // PLAYER, SPECTRUM, SONG
 
-}
\ No newline at end of file
+	/** release a {@link Streaming} (prefetch thread) or {@link OffHeap} (native memory) recording,
+	 * once no player holds it. Heap recordings are left to GC. */
+	@Override
+	public void close() throws IOException {
+		if (recording instanceof Closeable c)
+			c.close();
+	}
+
+}
@@ -0,0 +1,336 @@
+package judahzone.data;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**Recording whose blocks live outside Vector's array (native memory, a mapped file).
+ *
+ * <p>Subclasses keep {@code elementCount} and implement {@link #get(int)}, plus {@link #set(int, float[][])},
+ * {@link #add(float[][])}, {@link #clear()} and {@link #setSize(int)} if writable. Every Vector method that
+ * would touch the inherited array is answered here through get/set or throws UnsupportedOperationException:
+ * searches (blocks are copies, there is no identity to find), positional insert/remove, removeIf, sort
+ * and clone ({@link #toHeap()} instead).</p>
+ *
+ * <p>get(int) hands out a copy: changing it changes nothing, write back with set(int, float[][]).</p> */
+abstract class ExternalRecording extends Recording {
+	private static final long serialVersionUID = 1L;
+
+	/** @return a copy of the block */
+	@Override
+	public abstract float[][] get(int index);
+
+	@Override
+	public float[][] set(int index, float[][] element) {
+		throw new UnsupportedOperationException("read-only");
+	}
+
+	@Override
+	public boolean add(float[][] e) {
+		throw new UnsupportedOperationException("read-only");
+	}
+
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException("read-only");
+	}
+
+	@Override
+	public void setSize(int newSize) {
+		throw new UnsupportedOperationException("read-only");
+	}
+
+	protected void check(int index) {
+		if (index < 0 || index >= elementCount)
+			throw new ArrayIndexOutOfBoundsException(index + " >= " + elementCount);
+	}
+
+	/** heap-resident copy, e.g. for code that mutates blocks by reference */
+	public Recording toHeap() {
+		Recording result = new Recording();
+		int n = size();
+		result.ensureCapacity(n);
+		for (int i = 0; i < n; i++)
+			result.add(get(i));
+		return result;
+	}
+
+	/** serialize as a plain Recording, the native storage doesn't travel */
+	protected Object writeReplace() {
+		return toHeap();
+	}
+
+	/* --------------------- reads, through get(int) --------------------- */
+
+	@Override
+	public float[][] elementAt(int index) {
+		return get(index);
+	}
+
+	@Override
+	public float[][] firstElement() {
+		if (elementCount == 0)
+			throw new NoSuchElementException();
+		return get(0);
+	}
+
+	@Override
+	public float[][] lastElement() {
+		if (elementCount == 0)
+			throw new NoSuchElementException();
+		return get(elementCount - 1);
+	}
+
+	@Override
+	public Iterator<float[][]> iterator() {
+		return listIterator(0);
+	}
+
+	@Override
+	public ListIterator<float[][]> listIterator() {
+		return listIterator(0);
+	}
+
+	/** set() writes through, add/remove are unsupported */
+	@Override
+	public ListIterator<float[][]> listIterator(int index) {
+		if (index < 0 || index > elementCount)
+			throw new IndexOutOfBoundsException("Index: " + index);
+		return new ListIterator<>() {
+			int cursor = index;
+			int last = -1;
+			final int expected = modCount;
+
+			@Override public boolean hasNext() { return cursor < elementCount; }
+			@Override public boolean hasPrevious() { return cursor > 0; }
+			@Override public int nextIndex() { return cursor; }
+			@Override public int previousIndex() { return cursor - 1; }
+			@Override public float[][] next() {
+				if (modCount != expected) throw new ConcurrentModificationException();
+				if (cursor >= elementCount) throw new NoSuchElementException();
+				last = cursor;
+				return get(cursor++);
+			}
+			@Override public float[][] previous() {
+				if (modCount != expected) throw new ConcurrentModificationException();
+				if (cursor <= 0) throw new NoSuchElementException();
+				last = --cursor;
+				return get(cursor);
+			}
+			@Override public void set(float[][] e) {
+				if (last < 0) throw new IllegalStateException();
+				ExternalRecording.this.set(last, e);
+			}
+			@Override public void remove() { throw new UnsupportedOperationException(); }
+			@Override public void add(float[][] e) { throw new UnsupportedOperationException(); }
+		};
+	}
+
+	@Override
+	public Enumeration<float[][]> elements() {
+		Iterator<float[][]> it = iterator();
+		return new Enumeration<>() {
+			@Override public boolean hasMoreElements() { return it.hasNext(); }
+			@Override public float[][] nextElement() { return it.next(); }
+		};
+	}
+
+	@Override
+	public void forEach(Consumer<? super float[][]> action) {
+		int n = elementCount;
+		for (int i = 0; i < n; i++)
+			action.accept(get(i));
+	}
+
+	@Override
+	public Spliterator<float[][]> spliterator() {
+		return Spliterators.spliterator(iterator(), elementCount, Spliterator.ORDERED);
+	}
+
+	@Override
+	public Object[] toArray() {
+		Object[] result = new Object[elementCount];
+		for (int i = 0; i < result.length; i++)
+			result[i] = get(i);
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T[] toArray(T[] a) {
+		int n = elementCount;
+		if (a.length < n)
+			a = (T[]) Array.newInstance(a.getClass().getComponentType(), n);
+		for (int i = 0; i < n; i++)
+			a[i] = (T) get(i);
+		if (a.length > n)
+			a[n] = null;
+		return a;
+	}
+
+	@Override
+	public void copyInto(Object[] anArray) {
+		for (int i = 0; i < elementCount; i++)
+			anArray[i] = get(i);
+	}
+
+	/* --------------------- writes, through set/add --------------------- */
+
+	@Override
+	public void setElementAt(float[][] obj, int index) {
+		set(index, obj);
+	}
+
+	@Override
+	public void addElement(float[][] obj) {
+		add(obj);
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends float[][]> c) {
+		for (float[][] block : c)
+			add(block);
+		return !c.isEmpty();
+	}
+
+	@Override
+	public void replaceAll(UnaryOperator<float[][]> operator) {
+		for (int i = 0; i < elementCount; i++)
+			set(i, operator.apply(get(i)));
+	}
+
+	@Override
+	public void removeAllElements() {
+		clear();
+	}
+
+	/* --------------------- nothing to keep in Vector's array --------------------- */
+
+	@Override
+	public void ensureCapacity(int minCapacity) { }
+
+	@Override
+	public void trimToSize() { }
+
+	@Override
+	public int capacity() {
+		return elementCount;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return this == o;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(this);
+	}
+
+	/* --------------------- unsupported --------------------- */
+
+	@Override
+	public Object clone() {
+		throw new UnsupportedOperationException("toHeap()");
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		throw new UnsupportedOperationException("blocks are copies");
+	}
+
+	@Override
+	public boolean containsAll(Collection<?> c) {
+		throw new UnsupportedOperationException("blocks are copies");
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		throw new UnsupportedOperationException("blocks are copies");
+	}
+
+	@Override
+	public int indexOf(Object o, int index) {
+		throw new UnsupportedOperationException("blocks are copies");
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		throw new UnsupportedOperationException("blocks are copies");
+	}
+
+	@Override
+	public int lastIndexOf(Object o, int index) {
+		throw new UnsupportedOperationException("blocks are copies");
+	}
+
+	@Override
+	public void add(int index, float[][] element) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void insertElementAt(float[][] obj, int index) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends float[][]> c) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public float[][] remove(int index) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void removeElementAt(int index) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean removeElement(Object obj) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super float[][]> filter) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void sort(Comparator<? super float[][]> c) {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,253 @@
+package judahzone.data;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import judahzone.util.AudioMetrics;
+import judahzone.util.FromDisk;
+
+/**Stereo Recording stored outside the Java heap.
+ * <p>Blocks live in large native chunks ({@link ByteBuffer#allocateDirect direct memory} or a
+ * memory-mapped temp file) laid out as [L JACK_BUFFER][R JACK_BUFFER] per block, so a long take is a
+ * handful of buffers instead of tens of thousands of small arrays and loop length is bounded by
+ * disk rather than -Xmx.</p>
+ *
+ * <p>Bulk readers ({@link #getSamples(long, float[], int)}, {@link #getInterleaved(long, float[])},
+ * {@link #getChannel(int)}) copy straight from native memory.  {@link #get(int)} returns a
+ * <b>copy</b> of the block: writes must go back through {@link #set(int, float[][])} (or use
+ * {@link #toHeap()} for code that mutates blocks by reference). Append, set, clear and setSize are
+ * supported; the rest of Vector's API follows {@link ExternalRecording}.</p> */
+public class OffHeap extends ExternalRecording implements Closeable {
+	private static final long serialVersionUID = 1L;
+
+	/** blocks per native chunk (4 MB of stereo floats at 512 frames) */
+	static final int CHUNK_SHIFT = 10;
+	static final int CHUNK_BLOCKS = 1 << CHUNK_SHIFT;
+	static final int CHUNK_MASK = CHUNK_BLOCKS - 1;
+	static final int BLOCK_FLOATS = STEREO * JACK_BUFFER;
+	static final long CHUNK_BYTES = (long) CHUNK_BLOCKS * BLOCK_FLOATS * Float.BYTES;
+
+	private transient volatile FloatBuffer[] chunks = new FloatBuffer[4];
+	private transient int allocated; // chunks in use
+	private transient final File file;
+	private transient final FileChannel channel;
+
+	/** backed by direct memory */
+	public OffHeap() {
+		file = null;
+		channel = null;
+	}
+
+	/** backed by a memory-mapped temp file in dir (null: system temp), deleted on close/exit */
+	public OffHeap(File dir) throws IOException {
+		file = File.createTempFile("zone", ".raw", dir);
+		file.deleteOnExit();
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	/** decode a .wav into native memory and normalize, see {@link Recording#loadInternal(File, float)} */
+	public static OffHeap load(File f, float mastering, File dir) throws IOException {
+		OffHeap result = dir == null ? new OffHeap() : new OffHeap(dir);
+		if (f == null)
+			return result;
+		new FromDisk().load(f, mastering, result);
+		if (!result.isEmpty() && mastering > 0f)
+			AudioMetrics.normalizeToRms(result, mastering);
+		return result;
+	}
+
+	/** pre-size native storage so appends (e.g. live recording) don't allocate chunks */
+	public synchronized void reserve(int blocks) {
+		int needed = (blocks + CHUNK_MASK) >> CHUNK_SHIFT;
+		while (allocated < needed)
+			grow();
+	}
+
+	private void grow() {
+		FloatBuffer[] current = chunks;
+		if (allocated == current.length)
+			current = Arrays.copyOf(current, current.length * 2);
+		ByteBuffer bytes;
+		if (channel == null)
+			bytes = ByteBuffer.allocateDirect((int) CHUNK_BYTES);
+		else try {
+			bytes = channel.map(FileChannel.MapMode.READ_WRITE, allocated * CHUNK_BYTES, CHUNK_BYTES);
+		} catch (IOException e) {
+			throw new IllegalStateException(file.getAbsolutePath(), e);
+		}
+		current[allocated++] = bytes.order(ByteOrder.nativeOrder()).asFloatBuffer();
+		chunks = current;
+	}
+
+	private FloatBuffer chunk(int block) {
+		return chunks[block >> CHUNK_SHIFT];
+	}
+
+	private static int base(int block) {
+		return (block & CHUNK_MASK) * BLOCK_FLOATS;
+	}
+
+	private void write(int block, float[][] data) {
+		FloatBuffer fb = chunk(block);
+		int base = base(block);
+		for (int ch = LEFT; ch < STEREO; ch++) {
+			float[] src = data[Math.min(ch, data.length - 1)];
+			int len = Math.min(JACK_BUFFER, src.length);
+			fb.put(base + ch * JACK_BUFFER, src, 0, len);
+			for (int i = len; i < JACK_BUFFER; i++)
+				fb.put(base + ch * JACK_BUFFER + i, 0f);
+		}
+	}
+
+	/** copy a block into caller-supplied float[2][JACK_BUFFER] (allocation-free read) */
+	public void read(int index, float[][] dest) {
+		check(index);
+		FloatBuffer fb = chunk(index);
+		int base = base(index);
+		fb.get(base, dest[LEFT], 0, JACK_BUFFER);
+		fb.get(base + JACK_BUFFER, dest[RIGHT], 0, JACK_BUFFER);
+	}
+
+	/* --------------------- Vector overrides --------------------- */
+
+	/** @return a copy of the block, write changes back with {@link #set(int, float[][])} */
+	@Override
+	public synchronized float[][] get(int index) {
+		float[][] result = new float[STEREO][JACK_BUFFER];
+		read(index, result);
+		return result;
+	}
+
+	/** overwrite block contents in place. @return null (previous contents are not preserved) */
+	@Override
+	public synchronized float[][] set(int index, float[][] element) {
+		check(index);
+		write(index, element);
+		return null;
+	}
+
+	@Override
+	public synchronized boolean add(float[][] e) {
+		int block = elementCount;
+		if ((block >> CHUNK_SHIFT) >= allocated)
+			grow();
+		write(block, e);
+		modCount++;
+		elementCount = block + 1;
+		return true;
+	}
+
+	/** keeps native chunks for reuse, see {@link #close()} */
+	@Override
+	public synchronized void clear() {
+		modCount++;
+		elementCount = 0;
+	}
+
+	@Override
+	public synchronized void setSize(int newSize) {
+		if (newSize < elementCount) {
+			modCount++;
+			elementCount = Math.max(0, newSize);
+		} else while (elementCount < newSize)
+			add(new float[STEREO][JACK_BUFFER]);
+	}
+
+	/* --------------------- Recording overrides (bulk, no block copies) --------------------- */
+
+	@Override
+	public void getSamples(long startSample, float[] destination, int ch) {
+		int startBuf = (int) (startSample / JACK_BUFFER);
+		int offset = (int) (startSample % JACK_BUFFER);
+		int total = destination.length;
+		int destIndex = 0;
+
+		while (destIndex < total) {
+			check(startBuf);
+			int samplesToCopy = Math.min(JACK_BUFFER - offset, total - destIndex);
+			chunk(startBuf).get(base(startBuf) + ch * JACK_BUFFER + offset, destination, destIndex, samplesToCopy);
+			destIndex += samplesToCopy;
+			offset = 0;
+			startBuf++;
+		}
+	}
+
+	@Override
+	public float[] getChannel(int ch) {
+		int blocks = size();
+		float[] result = new float[blocks * JACK_BUFFER];
+		for (int i = 0; i < blocks; i++)
+			chunk(i).get(base(i) + ch * JACK_BUFFER, result, i * JACK_BUFFER, JACK_BUFFER);
+		return result;
+	}
+
+	@Override
+	public void getInterleaved(long startSample, float[] destination) {
+		if (destination == null) return;
+		if ((destination.length & 1) != 0)
+			throw new IllegalArgumentException("destination length must be even (interleaved stereo frames)");
+
+		final int framesNeeded = destination.length / 2;
+		int framesCopied = 0;
+		int startBuf = (int) (startSample / JACK_BUFFER);
+		int offset = (int) (startSample % JACK_BUFFER);
+
+		while (framesCopied < framesNeeded) {
+			check(startBuf);
+			FloatBuffer fb = chunk(startBuf);
+			int left = base(startBuf) + offset;
+			int right = left + JACK_BUFFER;
+			int toCopy = Math.min(JACK_BUFFER - offset, framesNeeded - framesCopied);
+			int destBase = framesCopied * 2;
+			for (int i = 0; i < toCopy; i++) {
+				destination[destBase++] = fb.get(left + i);
+				destination[destBase++] = fb.get(right + i);
+			}
+			framesCopied += toCopy;
+			offset = 0;
+			startBuf++;
+		}
+	}
+
+	@Override
+	public void silence(int end) {
+		end = Math.min(end, size());
+		for (int block = 0; block < end; block++) {
+			FloatBuffer fb = chunk(block);
+			int base = base(block);
+			for (int i = 0; i < BLOCK_FLOATS; i++)
+				fb.put(base + i, 0f);
+		}
+	}
+
+	@Override
+	public void duplicate(int frames) {
+		float[][] scratch = new float[STEREO][JACK_BUFFER];
+		while (size() < 2 * frames)
+			add(scratch);
+		for (int i = 0; i < frames; i++) {
+			read(i, scratch);
+			set(i + frames, scratch);
+		}
+	}
+
+	/** release native storage (and the backing temp file, if any). */
+	@Override
+	public synchronized void close() throws IOException {
+		clear();
+		chunks = new FloatBuffer[4];
+		allocated = 0;
+		if (channel != null) {
+			channel.close();
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+}
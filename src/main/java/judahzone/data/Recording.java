@@ -11,7 +11,9 @@ import judahzone.util.AudioTools;
 import judahzone.util.FromDisk;
 import judahzone.util.WavConstants;
 
-/**Uncompressed Stereo Audio (.wav File, Loop, Sample) organized by Jack buffer.*/
+/**Uncompressed Stereo Audio (.wav File, Loop, Sample) organized by Jack buffer.
+ * {@link OffHeap} and {@link Streaming} keep their blocks outside the heap: their get(int) hands out
+ * copies, so write a changed block back with set(int, float[][]) rather than mutating it in place.*/
 public class Recording extends Vector<float[][]> implements WavConstants {
 
 	public Recording() { /* container only */ }
@@ -0,0 +1,272 @@
+package judahzone.data;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import judahzone.prism.PrismRT;
+import judahzone.util.FromDisk;
+import judahzone.util.Threads;
+import judahzone.util.WavConstants;
+
+/**Disk-streaming, read-only Recording of a 16-bit .wav (backing tracks, rehearsal takes).
+ * <p>The file is memory-mapped (page cache, not heap) and a background prefetcher decodes
+ * jack-sized blocks into a bounded ring ahead of the play head, so an hour-long track plays
+ * with constant memory and starts as soon as the first {@link #PREFETCH} blocks are decoded.</p>
+ *
+ * <p>The player reads through {@link #play(int)}, which moves the play head. A block outside the
+ * ring (e.g. after PlayAudio.setSample(long)) plays as silence, counts an underrun and repositions
+ * the prefetcher; players may call {@link #seek(long)} up front to avoid the gap.
+ * {@link #setLoop(boolean)} (PlayAudio.Type.LOOP) wraps prefetch to block 0. Everything else,
+ * get(int) and the rest of Recording/Vector, decodes straight from the mapping: it allocates,
+ * leaves the play head alone and is not for the RT thread.</p>
+ *
+ * <p>The prefetcher parks until the play head needs it. It stops on {@link #close()} (see
+ * Asset.close()) or, failing that, once the Streaming is garbage collected.
+ * Files that fit in the ring are decoded once and never start a prefetcher.</p> */
+public final class Streaming extends ExternalRecording implements Closeable {
+	private static final long serialVersionUID = 1L;
+
+	/** blocks decoded ahead (power-of-two, ~1.4 seconds at 512 frames) */
+	public static final int PREFETCH = 128;
+	private static final int MASK = PREFETCH - 1;
+	private static final int GUARD = 2; // never refill the block under/behind the play head
+	/** play() wakes the prefetcher every WAKE blocks */
+	private static final int WAKE = PREFETCH / 4;
+	private static final float[][] SILENCE = new float[STEREO][JACK_BUFFER];
+	private static final Cleaner CLEANER = Cleaner.create();
+
+	private final File file;
+	private transient final Prefetch ring;
+	private transient final Cleaner.Cleanable cleanable;
+
+	/** decoder and ring, shared with the prefetch thread (which must not reach the Streaming) */
+	private static final class Prefetch implements Runnable, WavConstants {
+		final FromDisk wav = new FromDisk();
+		final ShortBuffer pcm;
+		final float gain;
+		final int blocks;
+		final float[][][] ring = new float[PREFETCH][STEREO][JACK_BUFFER];
+		final AtomicIntegerArray tags = new AtomicIntegerArray(PREFETCH); // block held by slot
+		final AtomicInteger seek = new AtomicInteger(-1);
+		final AtomicLong underruns = new AtomicLong();
+		volatile int head; // last block played
+		volatile int wakeAt = -1; // block whose play frees the slot prefetch is waiting on
+		volatile boolean loop;
+		volatile boolean running = true;
+		volatile Thread worker;
+
+		Prefetch(ByteBuffer mapped, float gain) throws IOException {
+			pcm = wav.open(mapped.order(ByteOrder.LITTLE_ENDIAN));
+			this.gain = gain;
+			blocks = wav.blocks();
+			for (int i = 0; i < PREFETCH; i++)
+				tags.set(i, -1);
+		}
+
+		short[] scratch() {
+			return new short[JACK_BUFFER * wav.getNumChannels()];
+		}
+
+		/** decode block into frame, zero padded */
+		void decode(int block, float[][] frame, short[] scratch) {
+			int frames = wav.decode(pcm, block, gain, scratch, frame);
+			for (int i = frames; i < JACK_BUFFER; i++) {
+				frame[LEFT][i] = 0f;
+				frame[RIGHT][i] = 0f;
+			}
+		}
+
+		void fill(int block, short[] scratch) {
+			int slot = block & MASK;
+			tags.set(slot, -1); // invalidate while writing
+			decode(block, ring[slot], scratch);
+			tags.set(slot, block); // publish
+		}
+
+		/** blocks already decoded in front of the play head */
+		int ahead(int h, int next) {
+			if (next >= h)
+				return next - h;
+			return loop ? next + blocks - h : 0;
+		}
+
+		/** @return true if block t sits between the play head and next in play order (still to be played) */
+		boolean pending(int h, int t, int next) {
+			if (t < 0)
+				return false;
+			int dt = t >= h ? t - h : loop ? t + blocks - h : -1;
+			return dt >= 0 && dt < ahead(h, next);
+		}
+
+		void wake() {
+			Thread t = worker;
+			if (t != null)
+				LockSupport.unpark(t);
+		}
+
+		@Override
+		public void run() {
+			worker = Thread.currentThread();
+			short[] scratch = scratch();
+			int next = PREFETCH - GUARD;
+			while (running) {
+				int s = seek.getAndSet(-1);
+				if (s >= 0)
+					next = s;
+				int h = head;
+				if (next < h && !loop)
+					next = h; // head jumped forward
+				if (next >= blocks)
+					next = loop ? 0 : blocks;
+				boolean room = next < blocks && ahead(h, next) < PREFETCH - GUARD;
+				int t = room ? tags.get(next & MASK) : -1;
+				// around a loop point slots can collide, don't overwrite blocks still ahead of the head
+				if (room && !pending(h, t, next)) {
+					fill(next, scratch);
+					next++;
+					continue;
+				}
+				wakeAt = room ? (t + 1) % blocks : -1;
+				if (head == h) // else play() may have missed wakeAt
+					LockSupport.park(this); // until play(), seek(), setLoop() or stop()
+			}
+			worker = null;
+		}
+
+		/** Cleaner action: must not reference the Streaming */
+		void stop() {
+			running = false;
+			wake();
+		}
+	}
+
+	public Streaming(File f) throws IOException {
+		this(f, RUN_LEVEL);
+	}
+
+	/** @param mastering fixed gain (no RMS normalization, the file is never fully read) */
+	public Streaming(File f, float mastering) throws IOException {
+		file = f;
+		try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+			if (ch.size() > Integer.MAX_VALUE)
+				throw new IOException(f.getName() + " exceeds 2 GB");
+			ring = new Prefetch(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()), mastering / FLOAT_SCALE);
+		}
+		elementCount = ring.blocks;
+		boolean resident = elementCount <= PREFETCH;
+		int prefill = resident ? elementCount : PREFETCH - GUARD;
+		short[] scratch = ring.scratch();
+		for (int block = 0; block < prefill; block++)
+			ring.fill(block, scratch);
+		if (resident) {
+			cleanable = null;
+			return;
+		}
+		cleanable = CLEANER.register(this, ring::stop);
+		Threads.virtual(ring);
+	}
+
+	/** @return an Asset wrapping a new stream of f */
+	public static Asset asset(File f, float mastering, Asset.Category category) throws IOException {
+		Streaming stream = new Streaming(f, mastering);
+		return new Asset(f.getName(), f, stream, (long) stream.ring.wav.getNumFrames(), category);
+	}
+
+	/** RT-safe: the prefetched block at index (moving the play head), or silence on underrun.
+	 * The block is owned by the ring: read it, don't keep or modify it. */
+	@PrismRT
+	public float[][] play(int index) {
+		check(index);
+		Prefetch p = ring;
+		p.head = index;
+		int slot = index & MASK;
+		if (p.tags.get(slot) == index) {
+			if ((index & (WAKE - 1)) == 0 || index == p.wakeAt)
+				p.wake();
+			return p.ring[slot];
+		}
+		p.underruns.incrementAndGet();
+		p.seek.set(index);
+		p.wake();
+		return SILENCE;
+	}
+
+	/** decode block index from the mapping (allocates, leaves the play head alone; RT players use {@link #play(int)}) */
+	@Override
+	public float[][] get(int index) {
+		check(index);
+		float[][] result = new float[STEREO][JACK_BUFFER];
+		ring.decode(index, result, ring.scratch());
+		return result;
+	}
+
+	/** reposition prefetch ahead of the player, e.g. from PlayAudio.setSample(long) */
+	public void seek(long sampleFrame) {
+		if (cleanable == null)
+			return; // resident
+		int block = (int) Math.max(0, Math.min(elementCount - 1, sampleFrame / JACK_BUFFER));
+		ring.head = block;
+		ring.seek.set(block);
+		ring.wake();
+	}
+
+	/** PlayAudio.Type.LOOP: keep prefetching from block 0 past the end */
+	public void setLoop(boolean loop) {
+		ring.loop = loop;
+		ring.wake();
+	}
+
+	public boolean isLoop() {
+		return ring.loop;
+	}
+
+	/** @return times the player asked for a block that wasn't decoded yet */
+	public long getUnderruns() {
+		return ring.underruns.get();
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/** decode an entire channel from disk (non-RT, allocates) */
+	@Override
+	public float[] getChannel(int ch) {
+		float[] result = new float[elementCount * JACK_BUFFER];
+		float[][] frame = new float[STEREO][JACK_BUFFER];
+		short[] scratch = ring.scratch();
+		for (int block = 0; block < elementCount; block++) {
+			ring.decode(block, frame, scratch);
+			System.arraycopy(frame[ch], 0, result, block * JACK_BUFFER, JACK_BUFFER);
+		}
+		return result;
+	}
+
+	@Override
+	public void silence(int end) {
+		throw new UnsupportedOperationException("read-only");
+	}
+
+	@Override
+	public void duplicate(int frames) {
+		throw new UnsupportedOperationException("read-only");
+	}
+
+	/** stop the prefetcher; the mapping is released with this object */
+	@Override
+	public void close() {
+		if (cleanable != null)
+			cleanable.clean();
+	}
+}
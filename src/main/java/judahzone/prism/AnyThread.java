@@ -0,0 +1,60 @@
+package judahzone.prism;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/** Bounded lock-free ring queue. Multiple Producers -> Multiple Consumers (any thread).
+    Producers and consumers both claim slots by CAS through {@link SequenceRing},
+    so neither side allocates or takes a monitor. Pre-fill factory, Power-of-two based.
+    Used as an object pool: consumers borrow with poll(), producers return with offer(). */
+@Prism(tags = {"lock-free", "pool"})
+public final class AnyThread<T> extends SequenceRing {
+	private final Object[] buf;
+	private final AtomicLong head = new AtomicLong(); // consumer claim index
+
+	public AnyThread(int capacity) {
+		this(capacity, 0, null);
+	}
+
+	/** @param capacity rounded up to a power-of-two
+	 *  @param preload number of slots (&lt;= capacity) filled from prefill at construction */
+	public AnyThread(int capacity, int preload, Supplier<T> prefill) {
+		super(capacity);
+		buf = new Object[capacity()];
+		if (prefill != null)
+			for (int i = 0, n = Math.min(preload, buf.length); i < n; i++)
+				offer(prefill.get());
+	}
+
+	/** Non-blocking offer from any thread. @return false if full. */
+	@PrismRT
+	public boolean offer(T e) {
+		long pos = claim();
+		if (pos < 0)
+			return false; // full
+		buf[slot(pos)] = e;
+		publish(pos);
+		return true;
+	}
+
+	/** Non-blocking poll from any thread. @return null if empty. */
+	@SuppressWarnings("unchecked")
+	@PrismRT
+	public T poll() {
+		long pos = take(head);
+		if (pos < 0)
+			return null; // empty
+		final int idx = slot(pos);
+		final T e = (T) buf[idx];
+		buf[idx] = null;
+		free(pos);
+		return e;
+	}
+
+	/** Approximate size (non-atomic snapshot). */
+	public int size() {
+		return count(head.get());
+	}
+
+	public boolean isEmpty() { return size() == 0; }
+}
@@ -32,6 +32,9 @@ import lombok.Getter;
  * <p>The public API supports runtime smoothing (`trigger(float smoothMS)` updates the
  * Letter via `sendLetter`), RT-safe parameter changes via `setAttack`, `setDecay`.</p>
  *
+ * <p>`triggerAt(int frame)`/`releaseAt(int frame)` queue sample-accurate events (preallocated, audio
+ * thread) that the block `process` splits the buffer on, so notes don't snap to buffer boundaries.</p>
+ *
  * <p>Add any Phase objects that need to sync with the envelope and Envelope will trigger/reset them.</p>
  *
  * <p>Supports over-sampling (input Letter objects need to have adjusted sampling rate set.)</p>
@@ -53,6 +56,13 @@ import lombok.Getter;
 
 	private final List<OffOn> phases = new CopyOnWriteArrayList<>();
 
+	/** pending sample-accurate events per buffer */
+	public static final int MAX_EVENTS = 16;
+	// RT owned, sorted by frame
+	private final int[] eventFrames = new int[MAX_EVENTS];
+	private final boolean[] eventRelease = new boolean[MAX_EVENTS];
+	private int events;
+
 	public Envelope(Postage env) {
 		this(new Letter(env));
 	}
@@ -193,47 +203,87 @@ import lombok.Getter;
 		return process(mono, mono.length);
 	}
 
-	/**Apply envelope slope to mono signal.
+	/**Apply envelope slope to mono signal. Events queued by {@link #triggerAt(int)}/{@link #releaseAt(int)}
+	 * split the buffer at their frames; events beyond len carry over to the next buffer.
 	 * @return number of frames processed while Envelope was open, remainder zeroed.
 	 *         <ul><li>0: envelope is/was likely idle/off.</li>
 	 *             <li>&lt; N_FRAMES: envelope went idle mid-buffer, remainder zeroed.</li>
 	 *         	   <li>N_FRAMES: isPlaying is true</li> </ul> */
 	@PrismRT
 	public int process(float[] mono, int len) {
+		if (events == 0)
+			return render(mono, 0, len);
+
+		int cursor = 0;
+		int open = 0; // end of the last open run
+		while (events > 0 && eventFrames[0] < len) {
+			int at = Math.max(cursor, eventFrames[0]);
+			boolean rls = eventRelease[0];
+			events--;
+			System.arraycopy(eventFrames, 1, eventFrames, 0, events);
+			System.arraycopy(eventRelease, 1, eventRelease, 0, events);
+			if (at > cursor) {
+				int run = render(mono, cursor, at);
+				if (run > 0)
+					open = cursor + run;
+				cursor = at;
+			}
+			if (rls)
+				release();
+			else
+				trigger();
+		}
+		int run = render(mono, cursor, len);
+		if (run > 0)
+			open = cursor + run;
+		for (int i = 0; i < events; i++)
+			eventFrames[i] -= len;
+		return open;
+	}
+
+	/** envelope over mono[from, to). @return frames from 'from' processed while open, remainder zeroed */
+	private int render(float[] mono, int from, int to) {
 		if (!triggered) {
 			for (Segment s : segments)
 				if (s != null && !s.isComplete())
 					s.setLength(0);
 			// Use Arrays.fill to zero the caller buffer safely even when len >
 			// Memory.ZERO.length
-			Arrays.fill(mono, 0, len, 0f);
+			Arrays.fill(mono, from, to, 0f);
 			return 0;
 		}
 
-		int processed = 0;
-		for (int i = 0; i < len; i++) {
-			// obtain the envelope sample first
-			float envSample = nextEnvSample();
-			mono[i] *= envSample;
-
-			// If nextEnvSample() returned a terminal zero and the envelope is no longer playing,
-			// do not count this trailing zero as a processed envelope sample; zero current+remainder
-			if (!isPlaying() && envSample == 0f) {
-				// zero current position and remainder (use Arrays.fill for safe sizing)
-				Arrays.fill(mono, i, len, 0f);
+		// Block path: find the active segment (same rules as nextEnvSample), let it render its run
+		int processed = from;
+		while (processed < to) {
+			Segment s = activeSegment();
+			if (s == null) {
+				// envelope ran out: zero current+remainder
+				off();
+				recordSample(0f);
+				Arrays.fill(mono, processed, to, 0f);
+				break;
+			}
+			if (s.isComplete()) // zero-length stage just activated: emits its end level once, as next() does
+				mono[processed++] *= recordSample(s.next());
+			else {
+				processed += s.render(mono, processed, to - processed);
+				recordSample(s.last());
+			}
+			// the final segment ended exactly on a zero: per-sample semantics don't count that sample
+			if (lastSample == 0f && !isPlaying()) {
+				processed--;
+				Arrays.fill(mono, processed, to, 0f);
 				off();
 				break;
 			}
-
-			// otherwise count this sample as processed
-			processed++;
 		}
 
 		// If we completed the full buffer and envelope is no longer playing, ensure off()
-		if (processed >= len && !isPlaying())
+		if (processed >= to && !isPlaying())
 			off();
 
-		return processed;
+		return processed - from;
 	}
 
 	@PrismRT
@@ -246,6 +296,46 @@ import lombok.Getter;
 		trigger(Letter.SMOOTH_MS);
 	}
 
+	/**Sample-accurate trigger: takes effect atFrame samples into the next {@link #process(float[], int)}
+	 * (frames past that buffer carry over). Block path only. */
+	@PrismRT
+	public void triggerAt(int atFrame) {
+		schedule(atFrame, false);
+	}
+
+	/** Sample-accurate release, see {@link #triggerAt(int)} */
+	@PrismRT
+	public void releaseAt(int atFrame) {
+		schedule(atFrame, true);
+	}
+
+	/** drop events queued by triggerAt(int)/releaseAt(int) that haven't happened yet */
+	@PrismRT
+	public void cancelEvents() {
+		events = 0;
+	}
+
+	/** insert in frame order (stable); a full queue applies the event now */
+	private void schedule(int atFrame, boolean rls) {
+		if (events == MAX_EVENTS) {
+			if (rls)
+				release();
+			else
+				trigger();
+			return;
+		}
+		int frame = Math.max(0, atFrame);
+		int i = events;
+		while (i > 0 && eventFrames[i - 1] > frame) {
+			eventFrames[i] = eventFrames[i - 1];
+			eventRelease[i] = eventRelease[i - 1];
+			i--;
+		}
+		eventFrames[i] = frame;
+		eventRelease[i] = rls;
+		events++;
+	}
+
 	@PrismUI
 	public void trigger(float smoothMS) {
 		float reentryLevel = Math.max(0f, Math.min(1f, lastSample)); // lastSample is good if re-trigger
@@ -287,6 +377,24 @@ import lombok.Getter;
 		}
 	}
 
+	/** @return the segment that would produce the next sample, null if the envelope has run out */
+	private Segment activeSegment() {
+		for (int i = 0; i < size; i++) {
+			Segment s = segments[i];
+			if (s.isComplete())
+				continue;
+			if (s.isActivating())
+				refreshSegmentFromSpec(s);
+			Delta d = s.stage;
+			if (d == Delta.SUS && releasing)
+				continue;
+			if (d == Delta.RLS && !releasing)
+				continue;
+			return s;
+		}
+		return null;
+	}
+
 	private float nextEnvSample() {
 		for (int i = 0; i < size; i++) {
 			Segment s = segments[i];
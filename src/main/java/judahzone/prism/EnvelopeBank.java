@@ -0,0 +1,362 @@
+package judahzone.prism;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import judahzone.data.Letter;
+import judahzone.prism.Envelope.Delta;
+import judahzone.util.Constants;
+import judahzone.util.Curve;
+
+/**Structure-of-arrays ADSR for many voices (drum kits, polyphonic synths).
+ *
+ * <p>Where each {@link Envelope} owns Segments, Ramps and a phase list, the bank keeps every voice's
+ * stage, position, levels and level-ramp in parallel primitive arrays and walks a dense list of the
+ * active voices once per buffer. Stages and curves are Envelope's: ATK (linear to 1) &rarr; DK (exponential
+ * to sustain) &rarr; SUS (held until {@link #release(int)}) &rarr; RLS (exponential from the last gain to zero).
+ * A zero-length stage that starts emits its end level for one sample, as Envelope does, then hands over.</p>
+ *
+ * <p>Where they differ:</p><ul>
+ * <li>Retrigger: the bank starts ATK exactly at the voice's last gain. Envelope ramps the ATK start level
+ *     from its previous trigger's level to the last gain over {@link Letter#SMOOTH_MS}.</li>
+ * <li>Stage set: Envelope drops SUS (RLS) for good if its constructor's Letter has no sustain (release).
+ *     The bank reads the Letter on every stage, so a later Letter with sustain or release gets those stages.
+ *     Without sustain a voice is AD, without release {@link #release(int)} silences at once.</li></ul>
+ *
+ * <p>{@link #sendLetter(int, Letter)} may come from any thread. The audio thread picks it up at the
+ * next buffer: the running stage takes the new length in place and sustain changes are smoothed over
+ * {@link Letter#SMOOTH_MS}, other stages read the new spec when they start.
+ * trigger/release/process belong to the audio thread.</p> */
+@Prism(tags = {"rt-safe", "envelope"})
+public class EnvelopeBank {
+
+	private static final byte IDLE = (byte) Delta.IDLE.ordinal();
+	private static final byte ATK = (byte) Delta.ATK.ordinal();
+	private static final byte DK = (byte) Delta.DK.ordinal();
+	private static final byte SUS = (byte) Delta.SUS.ordinal();
+	private static final byte RLS = (byte) Delta.RLS.ordinal();
+	private static final Delta[] DELTAS = Delta.values();
+	private static final Curve[] CURVES = {null, Curve.LINEAR, Curve.EXPONENTIAL, Curve.SUS, Curve.EXPONENTIAL};
+
+	private final int voices;
+	private final AtomicReferenceArray<Letter> specs;
+
+	// RT owned, one slot per voice
+	private final Letter[] applied;
+	private final byte[] stage;
+	private final int[] pos;
+	private final int[] length;
+	private final float[] start;
+	private final float[] end; // current end level (sustain in SUS)
+	private final float[] endTarget;
+	private final float[] endStep;
+	private final int[] endCount; // samples left on the end-level ramp
+	private final float[] last;
+	private final int[] frames; // open frames in the last process()
+	private final int rampSamples;
+
+	// dense list of active voices, slot[v] == -1 when idle
+	private final int[] active;
+	private final int[] slot;
+	private int count;
+
+	private final float[] gain = new float[Constants.bufSize()];
+
+	public EnvelopeBank(int voices) {
+		this(voices, new Letter(1, 100, 0f, 0));
+	}
+
+	public EnvelopeBank(int voices, Letter letter) {
+		if (voices < 1) throw new IllegalArgumentException("voices > 0");
+		if (letter == null) throw new IllegalArgumentException("letter is null");
+		this.voices = voices;
+		specs = new AtomicReferenceArray<>(voices);
+		applied = new Letter[voices];
+		for (int v = 0; v < voices; v++) {
+			specs.set(v, letter);
+			applied[v] = letter;
+		}
+		stage = new byte[voices];
+		pos = new int[voices];
+		length = new int[voices];
+		start = new float[voices];
+		end = new float[voices];
+		endTarget = new float[voices];
+		endStep = new float[voices];
+		endCount = new int[voices];
+		last = new float[voices];
+		frames = new int[voices];
+		active = new int[voices];
+		slot = new int[voices];
+		Arrays.fill(slot, -1);
+		rampSamples = Math.max(1, Letter.msToSamples(Letter.SMOOTH_MS, letter.sr()));
+	}
+
+	public int size() {
+		return voices;
+	}
+
+	/* ---------------- spec ---------------- */
+
+	@PrismUI
+	public void sendLetter(int voice, Letter l) {
+		if (l != null)
+			specs.set(voice, l);
+	}
+
+	/** same spec for every voice */
+	@PrismUI
+	public void sendLetter(Letter l) {
+		if (l == null)
+			return;
+		for (int v = 0; v < voices; v++)
+			specs.set(v, l);
+	}
+
+	public Letter getLetter(int voice) {
+		return specs.get(voice);
+	}
+
+	/** RT: bring a newly sent Letter into the running stage */
+	private void sync(int v) {
+		Letter l = specs.get(v);
+		Letter old = applied[v];
+		if (l == old)
+			return;
+		applied[v] = l;
+		byte st = stage[v];
+		if (st == ATK)
+			length[v] = l.attackSamples();
+		else if (st == DK) {
+			length[v] = l.decaySamples();
+			if (l.sustainLevel() != old.sustainLevel())
+				rampEnd(v, l.sustainLevel());
+		} else if (st == SUS) {
+			if (l.sustainLevel() != old.sustainLevel())
+				rampEnd(v, l.sustainLevel());
+		} else if (st == RLS)
+			length[v] = l.releaseSamples();
+	}
+
+	private void rampEnd(int v, float target) {
+		endTarget[v] = target;
+		endStep[v] = (target - end[v]) / rampSamples;
+		endCount[v] = rampSamples;
+	}
+
+	/* ---------------- events ---------------- */
+
+	/** start (or restart) voice from its current gain */
+	@PrismRT
+	public void trigger(int voice) {
+		Letter l = specs.get(voice);
+		applied[voice] = l;
+		if (slot[voice] < 0) {
+			slot[voice] = count;
+			active[count++] = voice;
+		}
+		enter(voice, ATK, Math.max(0f, Math.min(1f, last[voice])), 1f, l.attackSamples());
+	}
+
+	/** move voice to its release stage, or silence it if the Letter has no release */
+	@PrismRT
+	public void release(int voice) {
+		if (slot[voice] < 0 || stage[voice] == RLS)
+			return;
+		sync(voice);
+		int rls = applied[voice].releaseSamples();
+		if (rls > 0)
+			enter(voice, RLS, last[voice], 0f, rls);
+		else
+			off(voice);
+	}
+
+	/** silence every voice now */
+	@PrismRT
+	public void reset() {
+		while (count > 0)
+			off(active[count - 1]);
+	}
+
+	private void enter(int v, byte st, float from, float to, int len) {
+		stage[v] = st;
+		pos[v] = 0;
+		length[v] = len;
+		start[v] = from;
+		end[v] = to;
+		endCount[v] = 0;
+	}
+
+	/** current stage finished: on to the next one */
+	private void advance(int v) {
+		byte st = stage[v];
+		Letter l = applied[v];
+		if (st == ATK)
+			enter(v, DK, 1f, l.sustainLevel(), l.decaySamples());
+		else if (st == DK) {
+			if (l.sustainLevel() > 0f)
+				enter(v, SUS, l.sustainLevel(), l.sustainLevel(), Integer.MAX_VALUE);
+			else
+				off(v);
+		} else
+			off(v);
+	}
+
+	private void off(int v) {
+		stage[v] = IDLE;
+		last[v] = 0f;
+		endCount[v] = 0;
+		int s = slot[v];
+		if (s < 0)
+			return;
+		int moved = active[--count];
+		active[s] = moved;
+		slot[moved] = s;
+		slot[v] = -1;
+	}
+
+	/* ---------------- process ---------------- */
+
+	/**Apply each active voice's envelope to its signal, signals[voice][0, len), in one pass.
+	 * Idle voices' buffers are left alone; a voice that goes idle mid-buffer has its remainder zeroed.
+	 * @return voices still playing */
+	@PrismRT
+	public int process(float[][] signals, int len) {
+		for (int i = count - 1; i >= 0; i--) { // backwards: off() swaps in an already processed voice
+			int v = active[i];
+			frames[v] = run(v, signals[v], len);
+		}
+		return count;
+	}
+
+	/**Apply one voice's envelope to mono[0, len), like {@link Envelope#process(float[], int)}.
+	 * @return frames processed while the voice was open, remainder zeroed */
+	@PrismRT
+	public int process(int voice, float[] mono, int len) {
+		if (slot[voice] < 0) {
+			Arrays.fill(mono, 0, len, 0f);
+			return frames[voice] = 0;
+		}
+		return frames[voice] = run(voice, mono, len);
+	}
+
+	private int run(int v, float[] mono, int len) {
+		sync(v);
+		int done = 0;
+		while (done < len) {
+			byte st = stage[v];
+			if (st == IDLE)
+				break;
+			if (st == SUS) {
+				sustain(v, mono, done, len - done);
+				done = len;
+				break;
+			}
+			int n = Math.min(len - done, length[v] - pos[v]);
+			if (n <= 0) {
+				if (length[v] == 0 && pos[v] == 0 && end[v] > 0f) { // zero-length stage just entered: its end level, once
+					mono[done++] *= end[v];
+					last[v] = end[v];
+				}
+				advance(v);
+				continue;
+			}
+			if (endCount[v] > 0)
+				rampCurve(v, mono, done, n);
+			else
+				blockCurve(v, mono, done, n);
+			done += n;
+			if (pos[v] >= length[v])
+				advance(v);
+		}
+		if (done < len)
+			Arrays.fill(mono, done, len, 0f);
+		return done;
+	}
+
+	private void sustain(int v, float[] mono, int off, int n) {
+		float e = end[v];
+		int i = 0;
+		for (int ramp = endCount[v]; i < n && ramp > 0; i++) {
+			e = --ramp == 0 ? endTarget[v] : e + endStep[v];
+			endCount[v] = ramp;
+			mono[off + i] *= e;
+		}
+		for (; i < n; i++)
+			mono[off + i] *= e;
+		end[v] = e;
+		last[v] = e;
+	}
+
+	/** stage with a level ramp in progress: per sample */
+	private void rampCurve(int v, float[] mono, int off, int n) {
+		final Curve curve = CURVES[stage[v]];
+		final float inc = 1f / length[v];
+		final float s = start[v];
+		float e = end[v];
+		int p = pos[v];
+		int ramp = endCount[v];
+		float out = last[v];
+		for (int i = 0; i < n; i++, p++) {
+			if (ramp > 0)
+				e = --ramp == 0 ? endTarget[v] : e + endStep[v];
+			float c = curve.apply(p * inc);
+			out = c * s + (1f - c) * e;
+			mono[off + i] *= out;
+		}
+		pos[v] = p;
+		end[v] = e;
+		endCount[v] = ramp;
+		last[v] = out;
+	}
+
+	/** steady levels: curve rendered per chunk */
+	private void blockCurve(int v, float[] mono, int off, int n) {
+		final Curve curve = CURVES[stage[v]];
+		final float inc = 1f / length[v];
+		final float e = end[v];
+		final float span = start[v] - e;
+		int p = pos[v];
+		for (int done = 0; done < n; ) {
+			int chunk = Math.min(n - done, gain.length);
+			curve.render(gain, 0, chunk, p * inc, inc);
+			for (int i = 0, j = off + done; i < chunk; i++, j++)
+				mono[j] *= e + gain[i] * span; // c*start + (1-c)*end
+			last[v] = e + gain[chunk - 1] * span;
+			p += chunk;
+			done += chunk;
+		}
+		pos[v] = p;
+	}
+
+	/* ---------------- state ---------------- */
+
+	public boolean isPlaying(int voice) {
+		return stage[voice] != IDLE;
+	}
+
+	public Delta getStage(int voice) {
+		return DELTAS[stage[voice]];
+	}
+
+	/** @return the gain of voice's last processed sample */
+	public float getLastSample(int voice) {
+		return last[voice];
+	}
+
+	/** @return frames voice was open during the last buffer it processed */
+	public int getFrames(int voice) {
+		return frames[voice];
+	}
+
+	/** @return voices currently playing */
+	public int getActiveCount() {
+		return count;
+	}
+
+	/** @param i 0 until {@link #getActiveCount()} @return the i-th playing voice (order changes as voices end) */
+	public int getActiveVoice(int i) {
+		return active[i];
+	}
+
+}
@@ -0,0 +1,114 @@
+package judahzone.prism;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**Fan-in of packed int events (see {@link MidiPack}) from many RT sources into one UI-bound queue.
+ *
+ * <p>Each source (a Notes instance, a track, a meter) {@link #open(IntConsumer) opens} a {@link Port}
+ * with the UI handler its events belong to. Ports offer into a shared MPSC ring ({@link SequenceRing}:
+ * CAS-claimed slots with per-slot sequence numbers, no allocation); the UI calls {@link #drain()} once per
+ * Constants.GUI_REFRESH and every event is dispatched, in arrival order, to its port's handler,
+ * instead of scanning dozens of per-source IntRings.</p> */
+@Prism(tags = {"lock-free", "mpsc"})
+public final class FanIn extends SequenceRing {
+
+	/** RT-side producer handle, one per source. */
+	public final class Port {
+		private final int id;
+		private final IntConsumer handler;
+
+		private Port(int id, IntConsumer handler) {
+			this.id = id;
+			this.handler = handler;
+		}
+
+		public int getId() { return id; }
+
+		/** RT-side non-blocking offer. @return false if the shared ring is full */
+		@PrismRT
+		public boolean offer(int packed) {
+			return FanIn.this.offer(id, packed);
+		}
+
+		@PrismRT public boolean offerAdd(int data1, int data2) { return offer(MidiPack.packAdd(data1, data2)); }
+		@PrismRT public boolean offerNoteOff(int data1) { return offer(MidiPack.packNoteOff(data1)); }
+		@PrismRT public boolean offerRemove(int data1) { return offer(MidiPack.packRemove(data1)); }
+		@PrismRT public boolean offerRetrigger(int data1, int data2) { return offer(MidiPack.packRetrigger(data1, data2)); }
+	}
+
+	private final int[] values;
+	private final int[] sources;
+	private final AtomicLong dropped = new AtomicLong();
+	private long head; // consumer index, UI thread only
+	private volatile Port[] ports = new Port[0];
+
+	public FanIn(int capacity) {
+		super(capacity);
+		values = new int[capacity()];
+		sources = new int[capacity()];
+	}
+
+	/** register a source. @param handler receives this source's events on the UI thread during drain() */
+	@PrismUI
+	public synchronized Port open(IntConsumer handler) {
+		Port[] current = ports;
+		Port result = new Port(current.length, handler);
+		Port[] next = Arrays.copyOf(current, current.length + 1);
+		next[result.id] = result;
+		ports = next;
+		return result;
+	}
+
+	@PrismRT
+	boolean offer(int source, int packed) {
+		long pos = claim();
+		if (pos < 0) {
+			dropped.incrementAndGet();
+			return false; // full
+		}
+		int idx = slot(pos);
+		values[idx] = packed;
+		sources[idx] = source;
+		publish(pos);
+		return true;
+	}
+
+	/** UI: dispatch every published event to its port's handler. @return events drained */
+	@PrismUI
+	public int drain() {
+		Port[] p = ports;
+		int count = 0;
+		for (;;) {
+			final long pos = head;
+			if (!published(pos))
+				return count; // empty, or next slot still being written
+			final int idx = slot(pos);
+			final int packed = values[idx];
+			final int source = sources[idx];
+			head = pos + 1;
+			free(pos);
+			if (source >= p.length)
+				p = ports; // opened after this drain started
+			IntConsumer h = p[source].handler;
+			if (h != null)
+				h.accept(packed);
+			count++;
+		}
+	}
+
+	/** @return events lost because the ring was full */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/** Approximate size (non-atomic snapshot). UI-side. */
+	@PrismUI
+	public int size() {
+		return count(head);
+	}
+
+	@PrismUI
+	public boolean isEmpty() { return size() == 0; }
+}
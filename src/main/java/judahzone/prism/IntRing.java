@@ -1,14 +1,15 @@
 package judahzone.prism;
 
+import java.util.function.IntConsumer;
+
 /** SPSC int ring: RT producer (offer) -> UI consumer (poll).
-    No allocations, power-of-two capacity. Lock-free, wait-free. */
+    No allocations, power-of-two capacity. Lock-free, wait-free.
+    Head/tail padded apart (see RingIndex); bulk offer/drain publish once per batch. */
 @Prism
-public final class IntRing {
+public final class IntRing extends RingIndex {
 	private static final int EMPTY = 0x00000000; // or use MidiPack's reserved sentinel
 	private final int[] buf;
 	private final int mask;
-	private volatile int head = 0; // consumer index
-	private volatile int tail = 0; // producer index
 	private final int capacity;
 
 	public IntRing(int capacity) {
@@ -26,26 +27,68 @@ public final class IntRing {
 	public boolean offer(int v) {
 		int t = tail;
 		int next = (t + 1) & mask;
-		if (next == head) return false; // full
+		if (next == headCache && next == (headCache = acquireHead()))
+			return false; // full
 		buf[t] = v;
-		tail = next; // volatile write publishes
+		releaseTail(next); // release store publishes
 		return true;
 	}
 
+	/** RT-side bulk offer of src[0..n), one publish for the batch.
+	 * @return number of values accepted (less than n if the ring filled up) */
+	@PrismRT
+	public int offer(int[] src, int n) {
+		int t = tail;
+		int free = (headCache - t - 1) & mask;
+		if (free < n)
+			free = ((headCache = acquireHead()) - t - 1) & mask;
+		int count = Math.min(n, free);
+		for (int i = 0; i < count; i++)
+			buf[(t + i) & mask] = src[i];
+		if (count > 0)
+			releaseTail((t + count) & mask);
+		return count;
+	}
+
 	/** UI-side non-blocking poll. @return Integer.MIN_VALUE if empty. */
 	@PrismUI
 	public int poll() {
 		int h = head;
-		if (h == tail) return Integer.MIN_VALUE;
+		if (h == tailCache && h == (tailCache = acquireTail()))
+			return Integer.MIN_VALUE;
 		int v = buf[h];
-		head = (h + 1) & mask;
+		releaseHead((h + 1) & mask);
 		return v;
 	}
 
+	/** UI-side bulk poll into dst, one publish for the batch. @return number of values copied */
+	@PrismUI
+	public int drainTo(int[] dst) {
+		int h = head;
+		int count = Math.min(dst.length, ((tailCache = acquireTail()) - h) & mask);
+		for (int i = 0; i < count; i++)
+			dst[i] = buf[(h + i) & mask];
+		if (count > 0)
+			releaseHead((h + count) & mask);
+		return count;
+	}
+
+	/** UI-side: hand everything currently queued to c, one publish for the batch. @return values drained */
+	@PrismUI
+	public int drain(IntConsumer c) {
+		int h = head;
+		int count = ((tailCache = acquireTail()) - h) & mask;
+		for (int i = 0; i < count; i++)
+			c.accept(buf[(h + i) & mask]);
+		if (count > 0)
+			releaseHead((h + count) & mask);
+		return count;
+	}
+
 	/** Approximate size (UI-side). */
 	@PrismUI
 	public int size() {
-		int s = tail - head;
+		int s = acquireTail() - acquireHead();
 		if (s < 0) s += buf.length;
 		return s;
 	}
@@ -53,16 +96,11 @@ public final class IntRing {
 	public int capacity() { return capacity; }
 
 	@PrismUI
-	public boolean isEmpty() { return head == tail; }
+	public boolean isEmpty() { return acquireHead() == acquireTail(); }
 
 	/* RT-side non-blocking offer. Returns false if full.*/
 	@PrismRT public boolean offerPack(int packed) {
-		int t = tail;
-		int next = (t + 1) & mask;
-		if (next == head)
-			return false; 	// full
-		buf[t] = packed; tail = next; // volatile write publishes
-		return true;
+		return offer(packed);
 	}
 
 
@@ -87,7 +125,14 @@ public final class IntRing {
 
 
 	/* UI-side non-blocking poll. Returns EMPTY sentinel if empty.*/
-	@PrismUI public int pollPack() { final int h = head; if (h == tail) return EMPTY; final int v = buf[h]; head = (h + 1) & mask; return v; }
+	@PrismUI public int pollPack() {
+		final int h = head;
+		if (h == tailCache && h == (tailCache = acquireTail()))
+			return EMPTY;
+		final int v = buf[h];
+		releaseHead((h + 1) & mask);
+		return v;
+	}
 
 
 
@@ -0,0 +1,65 @@
+package judahzone.prism;
+
+import java.util.function.Consumer;
+
+/** Bounded lock-free ring queue. Multiple RT Producers -> Single UI Consumer.
+    Producers claim slots by CAS on tail and publish through per-slot sequence numbers ({@link SequenceRing});
+    the single consumer owns head outright, so poll/drain never CAS. Allocation-free, Power-of-two based.
+    One shared UI-bound queue instead of one OffThread per source, see also {@link FanIn}. */
+@Prism(tags = {"lock-free", "mpsc"})
+public final class ManyToOne<T> extends SequenceRing {
+	private final Object[] buf;
+	private long head; // consumer index, consumer thread only
+
+	public ManyToOne(int capacity) {
+		super(capacity);
+		buf = new Object[capacity()];
+	}
+
+	/** Non-blocking offer from any producer thread. @return false if full. */
+	@PrismRT
+	public boolean offer(T e) {
+		long pos = claim();
+		if (pos < 0)
+			return false; // full
+		buf[slot(pos)] = e;
+		publish(pos);
+		return true;
+	}
+
+	/** Non-blocking poll. Single consumer. @return null if empty (or the next slot is still being written). */
+	@SuppressWarnings("unchecked")
+	@PrismUI
+	public T poll() {
+		final long pos = head;
+		if (!published(pos))
+			return null;
+		final int idx = slot(pos);
+		final T e = (T) buf[idx];
+		buf[idx] = null;
+		head = pos + 1;
+		free(pos);
+		return e;
+	}
+
+	/** Hand everything currently published to c. Single consumer. @return elements drained */
+	@PrismUI
+	public int drain(Consumer<? super T> c) {
+		int count = 0;
+		T e;
+		while ((e = poll()) != null) {
+			c.accept(e);
+			count++;
+		}
+		return count;
+	}
+
+	/** Approximate size (non-atomic snapshot). Consumer-side. */
+	@PrismUI
+	public int size() {
+		return count(head);
+	}
+
+	@PrismUI
+	public boolean isEmpty() { return size() == 0; }
+}
@@ -1,15 +1,15 @@
 package judahzone.prism;
 
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /** Minimal lock-free ring queue. Single UI Producer -> Single RT Consumer.
-    Pre-fill factory, Power-of-two based. */
+    Pre-fill factory, Power-of-two based.
+    Head/tail padded apart (see RingIndex); bulk offer/drain publish once per batch. */
 @Prism
-public final class OnThread<T> {
+public final class OnThread<T> extends RingIndex {
     private final Object[] buf;
     private final int mask;
-    private volatile int head = 0; // consumer index (read)
-    private volatile int tail = 0; // producer index (write)
 
     public OnThread(int capacity) { this(capacity, null); }
 
@@ -33,10 +33,10 @@ public final class OnThread<T> {
     public boolean offer(T e) {
         final int t = tail;
         final int next = (t + 1) & mask;
-        if (next == head) return false; // full
+        if (next == headCache && next == (headCache = acquireHead())) return false; // full
         buf[t] = e;
-        // volatile write to tail publishes the element
-        tail = next;
+        // release store to tail publishes the element
+        releaseTail(next);
         return true;
     }
 
@@ -45,19 +45,62 @@ public final class OnThread<T> {
     @PrismRT
     public T poll() {
         final int h = head;
-        if (h == tail) return null; // empty
+        if (h == tailCache && h == (tailCache = acquireTail())) return null; // empty
         final T e = (T) buf[h];
         // clear slot to avoid holding references (helps GC)
         buf[h] = null;
-        head = (h + 1) & mask;
+        releaseHead((h + 1) & mask);
         return e;
     }
 
+    /** Bulk offer of src[0..n), one publish for the batch. Returns number accepted. Producer-side. */
+    @PrismUI
+    public int offer(T[] src, int n) {
+        final int t = tail;
+        int free = (headCache - t - 1) & mask;
+        if (free < n) free = ((headCache = acquireHead()) - t - 1) & mask;
+        final int count = Math.min(n, free);
+        for (int i = 0; i < count; i++) buf[(t + i) & mask] = src[i];
+        if (count > 0) releaseTail((t + count) & mask);
+        return count;
+    }
+
+    /** Bulk poll into dst, one publish for the batch. Returns number copied. Consumer-side. */
+    @SuppressWarnings("unchecked")
+    @PrismRT
+    public int drainTo(T[] dst) {
+        final int h = head;
+        final int count = Math.min(dst.length, ((tailCache = acquireTail()) - h) & mask);
+        for (int i = 0; i < count; i++) {
+            final int idx = (h + i) & mask;
+            dst[i] = (T) buf[idx];
+            buf[idx] = null;
+        }
+        if (count > 0) releaseHead((h + count) & mask);
+        return count;
+    }
+
+    /** Hand everything currently queued to c, one publish for the batch. Returns count. Consumer-side. */
+    @SuppressWarnings("unchecked")
+    @PrismRT
+    public int drain(Consumer<? super T> c) {
+        final int h = head;
+        final int count = ((tailCache = acquireTail()) - h) & mask;
+        for (int i = 0; i < count; i++) {
+            final int idx = (h + i) & mask;
+            final T e = (T) buf[idx];
+            buf[idx] = null;
+            c.accept(e);
+        }
+        if (count > 0) releaseHead((h + count) & mask);
+        return count;
+    }
+
     /** Peek newest (not advancing). Returns null if empty. RT-side safe. */
     @SuppressWarnings("unchecked")
     @PrismRT
     public T peekNewest() {
-        int t = tail;
+        int t = acquireTail();
         if (t == head) return null;
         int idx = (t - 1) & mask;
         return (T) buf[idx];
@@ -70,13 +113,13 @@ public final class OnThread<T> {
     /** Approximate size (non-atomic snapshot). UI-side. */
     @PrismUI
     public int size() {
-        int t = tail;
-        int h = head;
+        int t = acquireTail();
+        int h = acquireHead();
         int s = t - h;
         if (s < 0) s += buf.length;
         return s;
     }
 
     @PrismUI
-    public boolean isEmpty() { return head == tail; }
+    public boolean isEmpty() { return acquireHead() == acquireTail(); }
 }
\ No newline at end of file
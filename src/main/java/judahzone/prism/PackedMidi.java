@@ -0,0 +1,135 @@
+package judahzone.prism;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.ShortMessage;
+
+import judahzone.api.Midi;
+
+/** Garbage-free MIDI: a whole short message (status, data1, data2) in one int, the byte order of
+    ShortMessage.getMessage(). Layout (MSB→LSB): [unused:8][status:8][data1:8][data2:8]
+    Lives in int[] queues, rings and sequencer tables instead of a Midi/ShortMessage per event;
+    convert at the javax boundary with {@link #of(ShortMessage)} / {@link #toMidi(int)}.
+    See {@link MidiCmdPack} for the internal command form ({@link #toCmd(int)}). */
+public final class PackedMidi {
+
+	public static final int NOTE_OFF = ShortMessage.NOTE_OFF;
+	public static final int NOTE_ON = ShortMessage.NOTE_ON;
+	public static final int CONTROL_CHANGE = ShortMessage.CONTROL_CHANGE;
+	public static final int PROGRAM_CHANGE = ShortMessage.PROGRAM_CHANGE;
+	public static final int PITCH_BEND = ShortMessage.PITCH_BEND;
+	/** CC 123 */
+	public static final int ALL_NOTES_OFF = 123;
+
+	// Bit layout
+	private static final int SHIFT_STATUS = 16;
+	private static final int SHIFT_D1 = 8;
+	private static final int MASK_8 = 0xFF;
+	private static final int MASK_7 = 0x7F;
+
+	private PackedMidi() { /* utility */ }
+
+	/** @param status command | channel */
+	public static int pack(int status, int data1, int data2) {
+		return ((status & MASK_8) << SHIFT_STATUS) | ((data1 & MASK_7) << SHIFT_D1) | (data2 & MASK_7);
+	}
+
+	/** @param command e.g. NOTE_ON, CONTROL_CHANGE (0x80..0xE0) */
+	public static int pack(int command, int channel, int data1, int data2) {
+		return pack((command & 0xF0) | (channel & 0x0F), data1, data2);
+	}
+
+	public static int noteOn(int channel, int data1, int data2) {
+		return pack(NOTE_ON, channel, data1, data2);
+	}
+
+	public static int noteOff(int channel, int data1) {
+		return pack(NOTE_OFF, channel, data1, 0);
+	}
+
+	public static int cc(int channel, int data1, int data2) {
+		return pack(CONTROL_CHANGE, channel, data1, data2);
+	}
+
+	/** CC 123 on channel: the receiver releases everything it holds */
+	public static int allNotesOff(int channel) {
+		return cc(channel, ALL_NOTES_OFF, 0);
+	}
+
+	public static int status(int packed) { return (packed >>> SHIFT_STATUS) & MASK_8; }
+	public static int command(int packed) { return (packed >>> SHIFT_STATUS) & 0xF0; }
+	public static int channel(int packed) { return (packed >>> SHIFT_STATUS) & 0x0F; }
+	public static int data1(int packed) { return (packed >>> SHIFT_D1) & MASK_7; }
+	public static int data2(int packed) { return packed & MASK_7; }
+
+	/** note on with velocity &gt; 0 */
+	public static boolean isNoteOn(int packed) {
+		return command(packed) == NOTE_ON && data2(packed) > 0;
+	}
+
+	/** note off, or note on with velocity 0 */
+	public static boolean isNoteOff(int packed) {
+		int cmd = command(packed);
+		return cmd == NOTE_OFF || (cmd == NOTE_ON && data2(packed) == 0);
+	}
+
+	public static boolean isNote(int packed) {
+		int cmd = command(packed);
+		return cmd == NOTE_ON || cmd == NOTE_OFF;
+	}
+
+	public static boolean isCC(int packed) {
+		return command(packed) == CONTROL_CHANGE;
+	}
+
+	public static int withChannel(int packed, int channel) {
+		return (packed & ~(0x0F << SHIFT_STATUS)) | ((channel & 0x0F) << SHIFT_STATUS);
+	}
+
+	public static int withData2(int packed, int data2) {
+		return (packed & ~MASK_7) | (data2 & MASK_7);
+	}
+
+	/** packed counterpart of {@link Midi#format(ShortMessage, int, float)}: re-channel and scale data2 */
+	public static int format(int packed, int channel, float gain) {
+		int result = withChannel(packed, channel);
+		if (gain == 1f)
+			return result;
+		return withData2(result, Math.min(MASK_7, (int) (gain * data2(packed))));
+	}
+
+	/** @return the internal command form (note on: CMD_ADD, note off: CMD_NOTE_OFF, else CMD_SET) */
+	public static int toCmd(int packed) {
+		int cmd = isNoteOn(packed) ? MidiCmdPack.CMD_ADD
+				: isNoteOff(packed) ? MidiCmdPack.CMD_NOTE_OFF : MidiCmdPack.CMD_SET;
+		return MidiCmdPack.pack(cmd, channel(packed), data1(packed), data2(packed));
+	}
+
+	/* ---------------- javax boundary ---------------- */
+
+	/** @return msg packed, 0 for null */
+	public static int of(ShortMessage msg) {
+		return msg == null ? 0 : pack(msg.getStatus(), msg.getData1(), msg.getData2());
+	}
+
+	/** Allocates: for receivers that keep the message. Built from the status byte, so system and
+	 * realtime messages (clock, start, stop) convert too. @return null if packed isn't a valid short message */
+	public static Midi toMidi(int packed) {
+		Midi midi = new Midi(new byte[3]); // placeholder, load() validates and sets status and length
+		return load(packed, midi) == null ? null : midi;
+	}
+
+	/** Load packed into a reusable message (no allocation). Only for receivers that are done
+	 * with the message when send() returns. @return reuse, or null if packed isn't valid */
+	public static ShortMessage load(int packed, ShortMessage reuse) {
+		try {
+			reuse.setMessage(status(packed), data1(packed), data2(packed));
+			return reuse;
+		} catch (InvalidMidiDataException e) {
+			return null;
+		}
+	}
+
+	public static String toString(int packed) {
+		return "Midi{" + Integer.toHexString(status(packed)) + "} D1{" + data1(packed) + "} D2{" + data2(packed) + "}";
+	}
+}
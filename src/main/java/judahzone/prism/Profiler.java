@@ -0,0 +1,301 @@
+package judahzone.prism;
+
+import java.util.Arrays;
+
+import judahzone.api.FX;
+import judahzone.util.Constants;
+
+/**Allocation-free RT callback profiler: where does the jack budget go?
+ *
+ * <p>RT side: per stage (an FX instance, a mixer channel, ...) record System.nanoTime deltas into
+ * preallocated log-linear histograms (16 buckets per octave, ~6% resolution). Chain the timestamps
+ * so each stage costs one nanoTime:</p>
+ * <pre>
+ *   long t0 = profiler.start(), t = t0;
+ *   reverb.process(l, r);  t = profiler.stop(reverbStage, t);
+ *   delay.process(l, r);   t = profiler.stop(delayStage, t);
+ *   profiler.cycle(t0);    // end of process(): records PROCESS, publishes every few buffers
+ * </pre>
+ *
+ * <p>UI side: {@link #update()} drains published histograms (swapped, not copied, through an
+ * {@link OffThread}/{@link OnThread} pair) into running totals and answers p50/p99/max, % of
+ * {@link #BUDGET_NANOS} and how many buffers blew the budget per stage.</p> */
+@Prism(tags = {"wait-free", "profiler"})
+public final class Profiler {
+
+	/** the whole process() call, recorded by {@link #cycle(long)} */
+	public static final int PROCESS = 0;
+	/** one jack buffer in nanoseconds (10.67 ms at 512/48k) */
+	public static final long BUDGET_NANOS = Constants.bufSize() * 1_000_000_000L / Constants.sampleRate();
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB = 1 << SUB_BITS;
+	static final int BUCKETS = 40 * SUB; // up to ~2^39 ns
+	private static final int FRAMES = 4;
+
+	/** one publish interval of measurements, ping-ponged between RT and UI */
+	private static final class Frame {
+		final int[][] counts;
+		final long[] max;
+		int cycles;
+		Frame(int stages) {
+			counts = new int[stages][BUCKETS];
+			max = new long[stages];
+		}
+		void clear() {
+			for (int[] c : counts)
+				Arrays.fill(c, 0);
+			Arrays.fill(max, 0L);
+			cycles = 0;
+		}
+	}
+
+	private final int capacity;
+	private final String[] names;
+	private volatile int stages;
+	private final int publishEvery;
+	private final OffThread<Frame> full = new OffThread<>(FRAMES * 2);
+	private final OnThread<Frame> empty = new OnThread<>(FRAMES * 2);
+	private volatile boolean enabled = true;
+
+	// RT owned
+	private Frame active;
+	private int sincePublish;
+
+	// UI owned
+	private final long[][] totals;
+	private final long[] totalMax;
+	private long cycles;
+
+	public Profiler() {
+		this(64);
+	}
+
+	/** @param capacity maximum stages, including {@link #PROCESS} */
+	public Profiler(int capacity) {
+		this(capacity, Constants.GUI_REFRESH);
+	}
+
+	/**@param capacity maximum stages, including {@link #PROCESS}
+	 * @param publishEvery buffers between hand-offs to the UI */
+	public Profiler(int capacity, int publishEvery) {
+		if (capacity < 1) throw new IllegalArgumentException("capacity>0");
+		this.capacity = capacity;
+		this.publishEvery = Math.max(1, publishEvery);
+		names = new String[capacity];
+		names[PROCESS] = "process";
+		stages = 1;
+		active = new Frame(capacity);
+		for (int i = 1; i < FRAMES; i++)
+			empty.offer(new Frame(capacity));
+		totals = new long[capacity][BUCKETS];
+		totalMax = new long[capacity];
+	}
+
+	/** register a stage. @return its id for {@link #stop(int, long)} */
+	@PrismUI
+	public synchronized int register(String name) {
+		int id = stages;
+		if (id == capacity)
+			throw new IllegalStateException("Profiler full: " + capacity + " stages");
+		names[id] = name;
+		stages = id + 1;
+		return id;
+	}
+
+	/** register an FX instance as a stage */
+	@PrismUI
+	public int register(FX fx) {
+		return register(fx.getName());
+	}
+
+	public void setEnabled(boolean on) {
+		enabled = on;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/* ---------------- RT ---------------- */
+
+	@PrismRT
+	public long start() {
+		return System.nanoTime();
+	}
+
+	/** record nanoTime() - since against stage. @return now, the start of the next stage */
+	@PrismRT
+	public long stop(int stage, long since) {
+		long now = System.nanoTime();
+		record(stage, now - since);
+		return now;
+	}
+
+	@PrismRT
+	public void record(int stage, long nanos) {
+		if (!enabled)
+			return;
+		Frame f = active;
+		f.counts[stage][bucket(nanos)]++;
+		if (nanos > f.max[stage])
+			f.max[stage] = nanos;
+	}
+
+	/** end of a process() call: record {@link #PROCESS} since cycleStart, hand results to the UI periodically */
+	@PrismRT
+	public void cycle(long cycleStart) {
+		if (!enabled)
+			return;
+		record(PROCESS, System.nanoTime() - cycleStart);
+		active.cycles++;
+		if (++sincePublish < publishEvery)
+			return;
+		Frame next = empty.poll();
+		if (next == null)
+			return; // UI not keeping up, keep accumulating
+		full.offer(active); // can't fail: FRAMES < capacity of full
+		active = next;
+		sincePublish = 0;
+	}
+
+	/* ---------------- UI ---------------- */
+
+	/** drain published histograms into the running totals. @return true if anything arrived */
+	@PrismUI
+	public boolean update() {
+		boolean result = false;
+		Frame f;
+		while ((f = full.poll()) != null) {
+			int n = stages;
+			for (int s = 0; s < n; s++) {
+				int[] src = f.counts[s];
+				long[] dst = totals[s];
+				for (int b = 0; b < BUCKETS; b++)
+					dst[b] += src[b];
+				if (f.max[s] > totalMax[s])
+					totalMax[s] = f.max[s];
+			}
+			cycles += f.cycles;
+			f.clear();
+			empty.offer(f);
+			result = true;
+		}
+		return result;
+	}
+
+	/** forget UI totals (RT measurements in flight still arrive) */
+	@PrismUI
+	public void reset() {
+		for (long[] t : totals)
+			Arrays.fill(t, 0L);
+		Arrays.fill(totalMax, 0L);
+		cycles = 0;
+	}
+
+	@PrismUI
+	public int size() {
+		return stages;
+	}
+
+	@PrismUI
+	public String getName(int stage) {
+		return names[stage];
+	}
+
+	/** @return process() calls covered by the totals */
+	@PrismUI
+	public long getCycles() {
+		return cycles;
+	}
+
+	/** @return measurements recorded for stage */
+	@PrismUI
+	public long getCount(int stage) {
+		long sum = 0;
+		for (long c : totals[stage])
+			sum += c;
+		return sum;
+	}
+
+	/**@param p 0..1 (0.5 = median, 0.99)
+	 * @return approximate nanoseconds at percentile p, 0 if nothing recorded */
+	@PrismUI
+	public long percentile(int stage, double p) {
+		long[] t = totals[stage];
+		long count = getCount(stage);
+		if (count == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(p * count));
+		long seen = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			seen += t[b];
+			if (seen >= rank)
+				return Math.min(value(b), totalMax[stage]);
+		}
+		return totalMax[stage];
+	}
+
+	@PrismUI
+	public long p50(int stage) {
+		return percentile(stage, 0.5);
+	}
+
+	@PrismUI
+	public long p99(int stage) {
+		return percentile(stage, 0.99);
+	}
+
+	/** @return exact worst case in nanoseconds */
+	@PrismUI
+	public long getMax(int stage) {
+		return totalMax[stage];
+	}
+
+	/** @return nanos as a percentage of one buffer's time */
+	public static float budget(long nanos) {
+		return 100f * nanos / BUDGET_NANOS;
+	}
+
+	/** @return measurements that alone took longer than a whole buffer (xruns, for {@link #PROCESS}) */
+	@PrismUI
+	public long getOverBudget(int stage) {
+		long[] t = totals[stage];
+		long sum = 0;
+		for (int b = bucket(BUDGET_NANOS) + 1; b < BUCKETS; b++)
+			sum += t[b];
+		return sum;
+	}
+
+	/** one line per stage: name p50 p99 max (µs) and p99 % of budget */
+	@PrismUI
+	public String report() {
+		StringBuilder sb = new StringBuilder();
+		for (int s = 0; s < stages; s++) {
+			long p99 = p99(s);
+			sb.append(String.format("%-16s p50 %8.1f  p99 %8.1f  max %8.1f us  %5.1f%%  over %d%n", names[s],
+					p50(s) / 1000f, p99 / 1000f, getMax(s) / 1000f, budget(p99), getOverBudget(s)));
+		}
+		return sb.toString();
+	}
+
+	/* ---------------- log-linear buckets ---------------- */
+
+	static int bucket(long nanos) {
+		if (nanos < SUB)
+			return nanos < 0 ? 0 : (int) nanos;
+		int msb = 63 - Long.numberOfLeadingZeros(nanos);
+		int shift = msb - SUB_BITS;
+		int idx = ((shift + 1) << SUB_BITS) + (int) ((nanos >>> shift) & (SUB - 1));
+		return idx < BUCKETS ? idx : BUCKETS - 1;
+	}
+
+	/** @return upper edge of bucket b in nanoseconds */
+	static long value(int b) {
+		if (b < SUB)
+			return b;
+		int shift = (b >> SUB_BITS) - 1;
+		long low = (long) (SUB + (b & (SUB - 1))) << shift;
+		return low + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,71 @@
+package judahzone.prism;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**Cache-line separated head/tail for the SPSC rings (IntRing, OffThread, OnThread).
+ * <p>Superclass fields are laid out before subclass fields, so the padding classes below keep the
+ * consumer's line (head + its cached copy of tail) and the producer's line (tail + its cached copy of
+ * head) 64+ bytes apart, and apart from the ring's own fields. Each side only re-reads the opposite
+ * index when its cached copy says the ring is empty/full.</p>
+ *
+ * <p>Indices are plain fields: each side reads its own index plainly, reads the other side's with
+ * getAcquire and publishes with setRelease (a plain store on x86/ARMv8 ldar/stlr, instead of the full
+ * StoreLoad fence of a volatile write).</p> */
+abstract class RingIndex extends RingProducer {
+	long p20, p21, p22, p23, p24, p25, p26, p27;
+
+	private static final VarHandle HEAD;
+	private static final VarHandle TAIL;
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			HEAD = lookup.findVarHandle(RingConsumer.class, "head", int.class);
+			TAIL = lookup.findVarHandle(RingProducer.class, "tail", int.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/** producer (or snapshot) view of the consumer index */
+	final int acquireHead() {
+		return (int) HEAD.getAcquire(this);
+	}
+
+	/** consumer (or snapshot) view of the producer index */
+	final int acquireTail() {
+		return (int) TAIL.getAcquire(this);
+	}
+
+	/** consumer: free slots up to h */
+	final void releaseHead(int h) {
+		HEAD.setRelease(this, h);
+	}
+
+	/** producer: publish elements up to t */
+	final void releaseTail(int t) {
+		TAIL.setRelease(this, t);
+	}
+}
+
+abstract class RingPad {
+	long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class RingConsumer extends RingPad {
+	/** consumer index (read), see {@link RingIndex#releaseHead(int)} */
+	int head;
+	/** consumer-owned copy of tail */
+	int tailCache;
+}
+
+abstract class RingMiddle extends RingConsumer {
+	long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class RingProducer extends RingMiddle {
+	/** producer index (write), see {@link RingIndex#releaseTail(int)} */
+	int tail;
+	/** producer-owned copy of head */
+	int headCache;
+}
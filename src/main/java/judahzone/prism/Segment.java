@@ -2,6 +2,7 @@ package judahzone.prism;
 
 import judahzone.data.Letter;
 import judahzone.prism.Envelope.Delta;
+import judahzone.util.Constants;
 import judahzone.util.Curve;
 import judahzone.util.Ramp;
 
@@ -25,6 +26,10 @@ public class Segment {
 	private final Ramp startRamp;
 	private final Ramp endRamp;
 
+	// block rendering: curve values for one chunk, last gain produced
+	private final float[] gain = new float[Constants.bufSize()];
+	private float last;
+
 	/** New constructor: accept rampSamples directly (sample-count smoothing). */
 	public Segment(Delta stage, int length, int rampSamples, Curve curve, float startLevel, float endLevel) {
 		this.stage = stage;
@@ -144,6 +149,72 @@ public class Segment {
 	    return out;
 	}
 
+	/**Block counterpart of {@link #next()}: multiply mono[off, off + n) by this segment's gain.
+	 * While neither level ramp is moving, the curve is rendered per chunk (Curve.render) and applied
+	 * in a tight loop; otherwise falls back to per-sample next().
+	 * @return samples rendered, fewer than n if the segment completed. See {@link #last()} */
+	public int render(float[] mono, int off, int n) {
+		if (complete)
+			return 0;
+		final boolean infinite = totalSamples == Integer.MAX_VALUE;
+		final int run = infinite ? n : Math.min(n, totalSamples - pos);
+		if (run <= 0) {
+			if (!infinite) {
+				pos = totalSamples;
+				complete = true;
+			}
+			return 0;
+		}
+
+		// first sample through the ramps: applies pending level changes
+		float curStart = startRamp.next();
+		float curEnd = endRamp.next();
+		if (startRamp.isRamping() || endRamp.isRamping()) {
+			for (int i = 0; i < run; i++) {
+				if (i > 0) {
+					curStart = startRamp.next();
+					curEnd = endRamp.next();
+				}
+				float out;
+				if (infinite)
+					out = curEnd;
+				else {
+					float c = curve.apply(totalSamples <= 0 ? 1.0f : pos / (float) totalSamples);
+					out = c * curStart + (1.0f - c) * curEnd;
+					pos++;
+				}
+				mono[off + i] *= out;
+				last = out;
+			}
+		} else if (infinite) {
+			for (int i = 0; i < run; i++)
+				mono[off + i] *= curEnd;
+			last = curEnd;
+		} else {
+			final float inc = 1.0f / totalSamples;
+			final float span = curStart - curEnd;
+			for (int done = 0; done < run; ) {
+				int chunk = Math.min(run - done, gain.length);
+				curve.render(gain, 0, chunk, pos * inc, inc);
+				for (int i = 0, j = off + done; i < chunk; i++, j++)
+					mono[j] *= curEnd + gain[i] * span; // c*start + (1-c)*end
+				last = curEnd + gain[chunk - 1] * span;
+				pos += chunk;
+				done += chunk;
+			}
+		}
+		if (!infinite && pos >= totalSamples) {
+			pos = totalSamples;
+			complete = true;
+		}
+		return run;
+	}
+
+	/** @return the gain of the last sample rendered by {@link #render(float[], int, int)} */
+	public float last() {
+		return last;
+	}
+
 	public boolean isComplete() {
 	    return complete && totalSamples != Integer.MAX_VALUE;
 	}
@@ -0,0 +1,91 @@
+package judahzone.prism;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**Per-slot sequence numbers (Vyukov style) shared by the bounded lock-free rings:
+ * {@link AnyThread}, {@link ManyToOne}, {@link FanIn} and RTLogger's RT queue.
+ *
+ * <p>For claim index pos, slot {@code pos & mask} reads pos while free, pos + 1 once its element is
+ * published and pos + capacity once consumed (free for the next lap). Producers {@link #claim()} by CAS
+ * on tail, write their element and {@link #publish(long)}. A single consumer checks
+ * {@link #published(long)} against its own index, many consumers {@link #take(AtomicLong)} by CAS;
+ * either reads the element and {@link #free(long) frees} the slot. Subclasses own the element storage,
+ * indexed by {@link #slot(long)}. Neither side allocates or takes a monitor. Power-of-two based.</p> */
+public abstract class SequenceRing {
+	private final AtomicLongArray seq;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong(); // producer claim index
+
+	/** @param capacity rounded up to a power-of-two, see {@link #capacity()} */
+	protected SequenceRing(int capacity) {
+		if (capacity <= 0) throw new IllegalArgumentException("capacity>0");
+		int cap = 2;
+		while (cap < capacity) cap <<= 1; // round up to power-of-two
+		seq = new AtomicLongArray(cap);
+		mask = cap - 1;
+		for (int i = 0; i < cap; i++)
+			seq.set(i, i);
+	}
+
+	/** Capacity (power-of-two actual). */
+	public final int capacity() { return mask + 1; }
+
+	/** @return storage index of claim index pos */
+	protected final int slot(long pos) {
+		return (int) pos & mask;
+	}
+
+	/** Producer, any thread: claim the next free slot. @return its claim index, -1 if full */
+	protected final long claim() {
+		long pos = tail.get();
+		for (;;) {
+			long dif = seq.get(slot(pos)) - pos;
+			if (dif == 0) {
+				if (tail.compareAndSet(pos, pos + 1))
+					return pos;
+				pos = tail.get();
+			} else if (dif < 0)
+				return -1; // full
+			else
+				pos = tail.get(); // another producer claimed the slot
+		}
+	}
+
+	/** Producer: release store publishes the element written to slot(pos) */
+	protected final void publish(long pos) {
+		seq.lazySet(slot(pos), pos + 1);
+	}
+
+	/** Single consumer: @return true if the element at its index pos is published (false: empty, or still being written) */
+	protected final boolean published(long pos) {
+		return seq.get(slot(pos)) == pos + 1;
+	}
+
+	/** Consumer, any thread: claim the next published slot by CAS on head. @return its claim index, -1 if empty */
+	protected final long take(AtomicLong head) {
+		long pos = head.get();
+		for (;;) {
+			long dif = seq.get(slot(pos)) - (pos + 1);
+			if (dif == 0) {
+				if (head.compareAndSet(pos, pos + 1))
+					return pos;
+				pos = head.get();
+			} else if (dif < 0)
+				return -1; // empty
+			else
+				pos = head.get(); // another consumer claimed the slot
+		}
+	}
+
+	/** Consumer: slot(pos) has been read, free it for the next lap */
+	protected final void free(long pos) {
+		seq.lazySet(slot(pos), pos + mask + 1);
+	}
+
+	/** @return approximate elements published or in flight past head (non-atomic snapshot) */
+	protected final int count(long head) {
+		long s = tail.get() - head;
+		return s < 0 ? 0 : (int) Math.min(s, mask + 1);
+	}
+}
@@ -98,6 +98,7 @@ public final class AudioMetrics {
 	                buf[j] *= fgain;
 	            }
 	        }
+	        rec.set(i, block); // write back (OffHeap hands out copies)
 	    }
 	}
 
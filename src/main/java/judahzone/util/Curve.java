@@ -1,6 +1,9 @@
 package judahzone.util;
 
-/** Decay curve */
+/** Decay curve. Shapes beyond the built-ins come from the factories below: each is sampled once into a
+ * {@link CurveTable} and read back by interpolation, so the RT path does no transcendental math.
+ * Parametric shapes snap their parameter to a grid ({@link CurveTable#quantize}) and share tables, so
+ * sweeping a knob reuses a bounded set; breakpoint tables belong to the caller. */
 public interface Curve {
 
 	/**
@@ -10,11 +13,75 @@ public interface Curve {
 	 */
 	float apply(float progress);
 
-	public static final Curve LINEAR = (inverse) ->
-	 	1.0f - inverse;
-	public static final Curve EXPONENTIAL = (inverse) ->
-	 	(float) Math.exp(-3.0f /*pole*/ * inverse); // (slower) -2.5f <--pole--> -4.0f (faster)
+	/** Block form of {@link #apply(float)}: out[off + i] = apply(progress + i * inc) for i in [0, n).
+	 * Built-in curves override with per-block recurrences (no per-sample transcendental math). */
+	default void render(float[] out, int off, int n, float progress, float inc) {
+		for (int i = 0; i < n; i++)
+			out[off + i] = apply(progress + i * inc);
+	}
 
-	public static final Curve SUS = (inverse) -> 1.0f; // sustain level is flat until release
+	public static final Curve LINEAR = new Curve() {
+		@Override public float apply(float inverse) {
+			return 1.0f - inverse;
+		}
+		@Override public void render(float[] out, int off, int n, float progress, float inc) {
+			for (int i = 0; i < n; i++)
+				out[off + i] = 1.0f - (progress + i * inc);
+		}
+	};
+
+	public static final Curve EXPONENTIAL = new Curve() {
+		static final float POLE = -3.0f; // (slower) -2.5f <--pole--> -4.0f (faster)
+		final Curve table = CurveTable.of("exp" + POLE, p -> Math.exp(POLE * p), Interpolation.LINEAR);
+		@Override public float apply(float inverse) {
+			return table.apply(inverse);
+		}
+		/** e^(k(p + i*inc)) = e^(kp) * (e^(k*inc))^i: two exp() per block, one multiply per sample */
+		@Override public void render(float[] out, int off, int n, float progress, float inc) {
+			double c = Math.exp(POLE * progress);
+			final double r = Math.exp(POLE * (double) inc);
+			for (int i = 0; i < n; i++) {
+				out[off + i] = (float) c;
+				c *= r;
+			}
+		}
+	};
+
+	public static final Curve SUS = new Curve() { // sustain level is flat until release
+		@Override public float apply(float inverse) {
+			return 1.0f;
+		}
+		@Override public void render(float[] out, int off, int n, float progress, float inc) {
+			java.util.Arrays.fill(out, off, off + n, 1.0f);
+		}
+	};
+
+	/** Exponential that lands exactly on the end level.
+	 * @param pole &lt; 0 fast start (e.g. -3 like {@link #EXPONENTIAL}), &gt; 0 slow start, 0 is linear.
+	 * Clamped to [-16, 16] in steps of 1/4. */
+	static Curve exponential(float pole) {
+		float q = CurveTable.quantize(pole, 0.25f, -16, 16);
+		return CurveTable.of("exp:" + q, CurveTable.pole(q), Interpolation.CUBIC);
+	}
+
+	/** Logarithmic: drops fast then trails off. @param bend &gt; 0, higher is steeper (0 is linear).
+	 * Clamped to [0, 64] in steps of 1/2. */
+	static Curve log(float bend) {
+		float q = CurveTable.quantize(bend, 0.5f, 0, 64);
+		return CurveTable.of("log:" + q, CurveTable.log(q), Interpolation.CUBIC);
+	}
+
+	/** S-curve: slow-fast-slow. @param steepness &gt; 0, ~4 gentle, ~12 nearly a step (0 is linear).
+	 * Clamped to [0, 32] in steps of 1/4. */
+	static Curve sCurve(float steepness) {
+		float q = CurveTable.quantize(steepness, 0.25f, 0, 32);
+		return CurveTable.of("s:" + q, CurveTable.sCurve(q), Interpolation.CUBIC);
+	}
+
+	/** Custom shape through breakpoints, linear between them. A new table each call (not shared): keep it.
+	 * @param xy progress/weight pairs (x0, y0, x1, y1, ...), x ascending in [0, 1] */
+	static Curve breakpoints(float... xy) {
+		return CurveTable.create("bp:" + java.util.Arrays.toString(xy), CurveTable.breakpoints(xy), Interpolation.LINEAR);
+	}
 
 }
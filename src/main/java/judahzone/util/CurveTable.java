@@ -0,0 +1,134 @@
+package judahzone.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleUnaryOperator;
+
+/**Lookup-table Curve: a shape sampled once into a power-of-two table and read back with
+ * {@link Interpolation} (no transcendental math per sample). Tables are immutable.
+ * {@link #of(String, DoubleUnaryOperator, Interpolation)} interns them by key, so every envelope using
+ * e.g. Curve.log(4) reads the same 4 KB: only intern presets and {@link #quantize quantized} parameters,
+ * interned tables are never evicted. One-off shapes use {@link #create(String, DoubleUnaryOperator, Interpolation)}
+ * and are owned by the caller.
+ * <p>Like every Curve, values run from the start-level weight at progress 0 (normally 1) to the
+ * end-level weight at progress 1 (normally 0); progress is clamped to [0, 1].</p> */
+public final class CurveTable implements Curve {
+
+	public static final int SIZE = 1024;
+	private static final int MASK = SIZE - 1;
+	/** offset of progress 0: SIZE + 1 samples plus one guard point either side, for 4-point interpolation */
+	private static final int GUARD = 1;
+
+	private static final ConcurrentHashMap<String, CurveTable> SHARED = new ConcurrentHashMap<>();
+
+	private final String key;
+	private final float[] table = new float[SIZE + 3];
+	private final Interpolation interp;
+
+	private CurveTable(String key, DoubleUnaryOperator shape, Interpolation interp) {
+		this.key = key;
+		this.interp = interp == null ? Interpolation.LINEAR : interp;
+		for (int i = 0; i <= SIZE; i++)
+			table[i + GUARD] = (float) shape.applyAsDouble(i / (double) SIZE);
+		table[0] = table[GUARD]; // flat outside [0, 1]
+		table[SIZE + GUARD + 1] = table[SIZE + GUARD];
+	}
+
+	/** @return the interned table for key, sampling shape(progress) on first use. Keys must come from a bounded set */
+	public static CurveTable of(String key, DoubleUnaryOperator shape, Interpolation interp) {
+		return SHARED.computeIfAbsent(key + '/' + interp, k -> new CurveTable(k, shape, interp));
+	}
+
+	/** @return a new table of shape, not interned */
+	public static CurveTable create(String key, DoubleUnaryOperator shape, Interpolation interp) {
+		return new CurveTable(key + '/' + interp, shape, interp);
+	}
+
+	/** @return value clamped to [min, max] and snapped to a multiple of step, a bounded set of keys for {@link #of} */
+	public static float quantize(float value, float step, float min, float max) {
+		if (Float.isNaN(value))
+			return 0f;
+		float clamped = Math.max(min, Math.min(max, value));
+		return Math.round(clamped / step) * step + 0f; // + 0f: no "-0.0" key
+	}
+
+	@Override
+	public float apply(float progress) {
+		if (!(progress > 0f)) // also NaN
+			return table[GUARD];
+		if (progress >= 1f)
+			return table[SIZE + GUARD];
+		float idx = progress * SIZE;
+		int i = (int) idx;
+		float t = idx - i;
+		i &= MASK;
+		return interp.interp(table[i], table[i + 1], table[i + 2], table[i + 3], t);
+	}
+
+	@Override
+	public void render(float[] out, int off, int n, float progress, float inc) {
+		for (int i = 0; i < n; i++)
+			out[off + i] = apply(progress + i * inc);
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	@Override
+	public String toString() {
+		return "Curve[" + key + "]";
+	}
+
+	/* ---------------- shapes (progress 0..1 -> weight 1..0) ---------------- */
+
+	/** normalized exponential: reaches exactly 0 at the end. pole &lt; 0 fast start (decay), &gt; 0 slow start */
+	static DoubleUnaryOperator pole(double pole) {
+		if (Math.abs(pole) < 1e-6)
+			return p -> 1.0 - p;
+		final double end = Math.exp(pole);
+		return p -> (Math.exp(pole * p) - end) / (1.0 - end);
+	}
+
+	/** logarithmic: steep drop then long tail, k &gt; 0 is the amount of bend */
+	static DoubleUnaryOperator log(double k) {
+		if (k <= 1e-6)
+			return p -> 1.0 - p;
+		final double norm = Math.log1p(k);
+		return p -> 1.0 - Math.log1p(k * p) / norm;
+	}
+
+	/** S-curve (normalized logistic): slow-fast-slow, steepness &gt; 0 */
+	static DoubleUnaryOperator sCurve(double steepness) {
+		if (steepness <= 1e-6)
+			return p -> 1.0 - p;
+		final double lo = logistic(steepness, 0), hi = logistic(steepness, 1);
+		return p -> 1.0 - (logistic(steepness, p) - lo) / (hi - lo);
+	}
+
+	private static double logistic(double k, double p) {
+		return 1.0 / (1.0 + Math.exp(-k * (p - 0.5)));
+	}
+
+	/** piecewise-linear through (x, y) pairs, x ascending in [0, 1]; flat before the first/after the last */
+	static DoubleUnaryOperator breakpoints(float[] xy) {
+		if (xy == null || xy.length < 4 || (xy.length & 1) != 0)
+			throw new IllegalArgumentException("breakpoints: need at least two (x, y) pairs");
+		final float[] pts = Arrays.copyOf(xy, xy.length);
+		for (int i = 2; i < pts.length; i += 2)
+			if (pts[i] < pts[i - 2])
+				throw new IllegalArgumentException("breakpoints: x must ascend");
+		return p -> {
+			if (p <= pts[0])
+				return pts[1];
+			for (int i = 2; i < pts.length; i += 2) {
+				if (p <= pts[i]) {
+					double x0 = pts[i - 2], x1 = pts[i];
+					double t = x1 == x0 ? 1 : (p - x0) / (x1 - x0);
+					return pts[i - 1] + (pts[i + 1] - pts[i - 1]) * t;
+				}
+			}
+			return pts[pts.length - 1];
+		};
+	}
+}
@@ -0,0 +1,79 @@
+package judahzone.util;
+
+import java.util.Arrays;
+
+/** Growable primitive float accumulator for decoding audio of unknown length.
+ * Samples are appended into fixed-size chunks (no boxing, no reallocation copies while growing);
+ * {@link #toArray()} assembles the final float[] once.  not thread safe */
+public final class FloatChunks {
+
+	/** floats per chunk (256 KB) */
+	public static final int CHUNK = 1 << 16;
+	private static final int SHIFT = 16;
+	private static final int MASK = CHUNK - 1;
+
+	private float[][] chunks = new float[8][];
+	private int size;
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void add(float v) {
+		int c = size >>> SHIFT;
+		if (c == chunks.length)
+			chunks = Arrays.copyOf(chunks, c * 2);
+		if (chunks[c] == null)
+			chunks[c] = new float[CHUNK];
+		chunks[c][size & MASK] = v;
+		size++;
+	}
+
+	public void add(float[] src) {
+		add(src, 0, src.length);
+	}
+
+	/** bulk append src[off..off+len) */
+	public void add(float[] src, int off, int len) {
+		while (len > 0) {
+			int c = size >>> SHIFT;
+			if (c == chunks.length)
+				chunks = Arrays.copyOf(chunks, c * 2);
+			if (chunks[c] == null)
+				chunks[c] = new float[CHUNK];
+			int pos = size & MASK;
+			int n = Math.min(len, CHUNK - pos);
+			System.arraycopy(src, off, chunks[c], pos, n);
+			size += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	public float get(int idx) {
+		if (idx < 0 || idx >= size) throw new IndexOutOfBoundsException(idx);
+		return chunks[idx >>> SHIFT][idx & MASK];
+	}
+
+	/** @return the first len samples as a new float[] (len may exceed size: zero padded) */
+	public float[] toArray(int len) {
+		float[] out = new float[len];
+		int n = Math.min(len, size);
+		for (int off = 0, c = 0; off < n; off += CHUNK, c++)
+			System.arraycopy(chunks[c], 0, out, off, Math.min(CHUNK, n - off));
+		return out;
+	}
+
+	public float[] toArray() {
+		return toArray(size);
+	}
+
+	/** drop samples, keep allocated chunks for reuse */
+	public void clear() {
+		size = 0;
+	}
+}
@@ -4,7 +4,15 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import judahzone.data.OffHeap;
 import judahzone.data.Recording;
 
 /**	------------WavFile------------<br/>
@@ -31,12 +39,130 @@ public class FromDisk implements WavConstants {
 	private int bytesRead;				// Bytes read after last read into local buffer
 	private int frameCounter;			// Current number of frames read or written
 
-	/**@return size of file in frames */
+	/**Memory-map the file and decode 16-bit PCM straight from the mapped bytes into jack-sized blocks.
+	 * @return size of file in frames */
 	public int load(File file, float factor, Recording into) throws IOException {
-		return load(new FileInputStream(file), factor, into);
+		try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long length = ch.size();
+			if (length > Integer.MAX_VALUE)
+				return load(new FileInputStream(file), factor, into); // beyond a single mapping
+			MappedByteBuffer mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			return load(mapped.order(ByteOrder.LITTLE_ENDIAN), factor, into);
+		}
+	}
+
+	/**Decode a little-endian wav image (e.g. memory-mapped) without per-sample stream reads.
+	 * Samples are bulk-copied as shorts and scaled in tight loops with the mastering factor fused
+	 * into the PCM-to-float conversion.
+	 * @return number of jack buffers appended */
+	public int load(ByteBuffer wav, float factor, Recording into) throws IOException {
+		ShortBuffer pcm = open(wav);
+		final float gain = factor / FLOAT_SCALE;
+		final short[] scratch = new short[JACK_BUFFER * numChannels];
+		final boolean offHeap = into instanceof OffHeap;
+		final float[][] reuse = offHeap ? new float[STEREO][JACK_BUFFER] : null;
+
+		int blocks = blocks();
+		if (offHeap)
+			((OffHeap) into).reserve(into.size() + blocks);
+		else
+			into.ensureCapacity(into.size() + blocks);
+
+		for (int b = 0; b < blocks; b++) {
+			float[][] frame = offHeap ? reuse : new float[STEREO][JACK_BUFFER];
+			int frames = decode(pcm, b, gain, scratch, frame);
+			if (offHeap && frames < JACK_BUFFER) {
+				Arrays.fill(frame[LEFT], frames, JACK_BUFFER, 0f);
+				Arrays.fill(frame[RIGHT], frames, JACK_BUFFER, 0f);
+			}
+			into.add(frame);
+		}
+		return blocks;
+	}
+
+	/**Parse the RIFF header of a little-endian wav image.
+	 * @return 16-bit PCM view of the data chunk (absolute-indexed, see {@link #decode}) */
+	public ShortBuffer open(ByteBuffer wav) throws IOException {
+		if (wav.limit() < 12) throw new IOException("Not enough wav file bytes for header");
+		if (wav.getInt(0) != RIFF_CHUNK_ID) throw new IOException("Invalid Wav Header data, incorrect riff chunk ID");
+		if (wav.getInt(8) != RIFF_TYPE_ID) throw new IOException("Invalid Wav Header data, incorrect riff type ID");
+
+		boolean foundFormat = false;
+		int dataStart = -1;
+		int pos = 12;
+		while (pos + 8 <= wav.limit()) {
+			int chunkID = wav.getInt(pos);
+			long chunkSize = wav.getInt(pos + 4) & 0xFFFFFFFFL;
+			pos += 8;
+			if (chunkID == FMT_CHUNK_ID) {
+				foundFormat = true;
+				if (pos + 16 > wav.limit()) throw new IOException("Could not read format chunk");
+				checkFormat(wav.getShort(pos) & 0xFFFF, wav.getShort(pos + 2) & 0xFFFF, wav.getInt(pos + 4) & 0xFFFFFFFFL,
+						wav.getShort(pos + 12) & 0xFFFF, wav.getShort(pos + 14) & 0xFFFF);
+			} else if (chunkID == DATA_CHUNK_ID) {
+				if (!foundFormat) throw new IOException("Data chunk found before Format chunk");
+				if (chunkSize % blockAlign != 0) throw new IOException("Data Chunk size is not multiple of Block Align");
+				// tolerate truncated files: decode what is actually present
+				chunkSize = Math.min(chunkSize, wav.limit() - pos);
+				numFrames = (int) (chunkSize / blockAlign);
+				dataStart = pos;
+				break;
+			}
+			// Word align the chunk size
+			pos += (int) ((chunkSize % 2 == 1) ? chunkSize + 1 : chunkSize);
+		}
+		if (dataStart < 0)
+			throw new IOException(foundFormat ? "Did not find a data chunk" : "Reached end of file without finding format chunk");
+		return wav.duplicate().position(dataStart).slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+	}
+
+	/** @return jack buffers for the opened file, matching the stream decoder which always closes with a silent/partial block */
+	public int blocks() {
+		return numFrames / JACK_BUFFER + (numFrames % JACK_BUFFER == 0 ? 1 : 2);
+	}
+
+	/** @return frames in the opened file's data chunk */
+	public int getNumFrames() {
+		return numFrames;
 	}
 
+	/** @return channels in the opened file */
+	public int getNumChannels() {
+		return numChannels;
+	}
 
+	/**Decode one jack buffer of the opened file into a stereo frame (mono is duplicated).
+	 * Absolute reads: safe to call out of order, frame tail beyond the returned count is untouched.
+	 * @param pcm view returned by {@link #open(ByteBuffer)}
+	 * @param block jack buffer index
+	 * @param gain mastering factor / FLOAT_SCALE
+	 * @param scratch at least JACK_BUFFER * channels
+	 * @return frames decoded (0..JACK_BUFFER) */
+	public int decode(ShortBuffer pcm, int block, float gain, short[] scratch, float[][] frame) {
+		long start = (long) block * JACK_BUFFER;
+		int frames = (int) Math.max(0, Math.min(JACK_BUFFER, numFrames - start));
+		if (frames == 0)
+			return 0;
+		pcm.get((int) (start * numChannels), scratch, 0, frames * numChannels);
+		float[] left = frame[LEFT];
+		float[] right = frame[RIGHT];
+		if (numChannels == 2) {
+			for (int i = 0, j = 0; i < frames; i++, j += 2) {
+				left[i] = gain * scratch[j];
+				right[i] = gain * scratch[j + 1];
+			}
+		} else if (numChannels == 1) {
+			for (int i = 0; i < frames; i++)
+				left[i] = gain * scratch[i];
+			System.arraycopy(left, 0, right, 0, frames);
+		} else { // take the first two channels
+			for (int i = 0, j = 0; i < frames; i++, j += numChannels) {
+				left[i] = gain * scratch[j];
+				right[i] = gain * scratch[j + 1];
+			}
+		}
+		return frames;
+	}
 
 	public int load(InputStream stream, float factor, Recording into) throws IOException {
 		iStream = stream;
@@ -176,26 +302,26 @@ public class FromDisk implements WavConstants {
 
 	private int readFormat() throws IOException {
 		int result = iStream.read(buffer, 0, 16);
+		checkFormat(getLE(buffer, 0, 2), getLE(buffer, 2, 2), getLE(buffer, 4, 4), getLE(buffer, 12, 2), getLE(buffer, 14, 2));
+		return result;
+	}
 
+	private void checkFormat(int compressionCode, int channels, long srate, int align, int bits) throws IOException {
 		// Check this is uncompressed data
-		int compressionCode = getLE(buffer, 0, 2);
 		if (compressionCode != 1) throw new IOException("Compression Code " + compressionCode + " not supported");
 
 		// Extract the format information
-		numChannels = getLE(buffer, 2, 2);
-		long srate = getLE(buffer, 4, 4);
+		numChannels = channels;
 		if (srate != S_RATE)
 			throw new IOException("Sample rate(" + S_RATE + ") vs: " + srate);
-		blockAlign = getLE(buffer, 12, 2);
+		blockAlign = align;
 
-		int bits = getLE(buffer, 14, 2);
 		if (bits != VALID_BITS)
 			throw new IOException("Bit Depth: " + bits + " (expected: " + VALID_BITS + ")");
 		if (numChannels == 0) throw new IOException("Number of channels specified in header is equal to zero");
 		if (blockAlign == 0) throw new IOException("Block Align specified in header is equal to zero");
 		if (SAMPLE_BYTES * numChannels != blockAlign)
 			throw new IOException("Block Align does not agree with bytes required for VALID_BITS and number of channels");
-		return result;
 	}
 
 	public static long sampleToMillis(long samplePosition) {
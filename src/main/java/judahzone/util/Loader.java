@@ -0,0 +1,161 @@
+package judahzone.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import judahzone.data.Asset;
+import judahzone.data.Asset.Category;
+import judahzone.data.Recording;
+
+/**Batch asset loader: decode a folder (kits, loops, samples) concurrently.
+ *
+ * <ul><li>I/O: each file is paged in on a virtual thread ({@link Threads#IO}).</li>
+ *     <li>CPU: decode + RMS normalization run on the shared DSP pool ({@link Threads#DSP}),
+ *         bounded to the machine's worker cores.</li>
+ *     <li>At most {@link #IN_FLIGHT} files per worker are paged-in but not yet decoded, so a big folder
+ *         doesn't map everything at once.</li></ul>
+ *
+ * <p>Each finished file (or failure) is streamed to the listener as a {@link Progress} from the worker
+ * thread that completed it; UI listeners should hop to the EDT. The returned future completes with
+ * successfully loaded Assets in input order.</p> */
+public final class Loader {
+
+	/** paged-in files waiting per decode worker */
+	public static final int IN_FLIGHT = 2;
+
+	/**@param file the file just finished
+	 * @param asset loaded asset or null on error
+	 * @param error failure or null
+	 * @param done files finished so far (including this one)
+	 * @param total files in the batch */
+	public static record Progress(File file, Asset asset, Throwable error, int done, int total) {
+		public boolean isLast() { return done == total; }
+	}
+
+	private static final Executor DSP = Threads.DSP;
+
+	private Loader() { /* utility */ }
+
+	/** decode all audio files in folder (e.g. Folders.getKits(), Folders.getSamples()) */
+	public static CompletableFuture<List<Asset>> load(File folder, Category category, float mastering,
+			Consumer<Progress> listener) {
+		File[] files = folder == null ? null : folder.listFiles(Loader::isAudio);
+		if (files == null)
+			files = new File[0];
+		Arrays.sort(files);
+		return load(Arrays.asList(files), category, mastering, listener);
+	}
+
+	public static CompletableFuture<List<Asset>> load(List<File> files, Category category, float mastering,
+			Consumer<Progress> listener) {
+		final int total = files.size();
+		final Asset[] results = new Asset[total];
+		final AtomicInteger done = new AtomicInteger();
+		final Semaphore permits = new Semaphore(Threads.getDspWorkers() * IN_FLIGHT);
+		final CompletableFuture<List<Asset>> result = new CompletableFuture<>();
+		if (total == 0) {
+			result.complete(new ArrayList<>());
+			return result;
+		}
+
+		for (int i = 0; i < total; i++) {
+			final int idx = i;
+			final File f = files.get(i);
+			Threads.virtual(() -> {
+				try {
+					permits.acquire();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					finish(f, null, e, idx, results, done, total, listener, result);
+					return;
+				}
+				try {
+					pageIn(f);
+					DSP.execute(() -> {
+						Asset asset = null;
+						Throwable error = null;
+						try {
+							asset = decode(f, category, mastering);
+						} catch (Throwable t) {
+							error = t;
+						} finally {
+							permits.release();
+						}
+						finish(f, asset, error, idx, results, done, total, listener, result);
+					});
+				} catch (Throwable t) {
+					permits.release();
+					finish(f, null, t, idx, results, done, total, listener, result);
+				}
+			});
+		}
+		return result;
+	}
+
+	private static void finish(File f, Asset asset, Throwable error, int idx, Asset[] results, AtomicInteger done,
+			int total, Consumer<Progress> listener, CompletableFuture<List<Asset>> result) {
+		results[idx] = asset;
+		int count = done.incrementAndGet();
+		if (error != null)
+			RTLogger.warn(Loader.class, f.getName() + ": " + error.getMessage());
+		if (listener != null) {
+			try {
+				listener.accept(new Progress(f, asset, error, count, total));
+			} catch (Throwable t) {
+				RTLogger.warn(Loader.class, t);
+			}
+		}
+		if (count == total) {
+			List<Asset> out = new ArrayList<>(total);
+			for (Asset a : results)
+				if (a != null)
+					out.add(a);
+			result.complete(out);
+		}
+	}
+
+	/** fault the file into the page cache so the decode worker doesn't block on disk */
+	private static void pageIn(File f) throws IOException {
+		try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+			long size = ch.size();
+			if (size > 0 && size <= Integer.MAX_VALUE)
+				ch.map(FileChannel.MapMode.READ_ONLY, 0, size).load();
+		}
+	}
+
+	/** wav through the mapped decoder, anything else (or non-native wav) through the Tarsos pipe */
+	static Asset decode(File f, Category category, float mastering) throws IOException {
+		Recording rec = null;
+		if (!FromDisk.isCompressedFormat(f.getName().toLowerCase())) {
+			try {
+				rec = Recording.loadInternal(f, mastering);
+			} catch (IOException e) {
+				rec = null; // sample rate/bit depth mismatch: let the decoder resample
+			}
+		}
+		if (rec == null) {
+			rec = MP3.load(f, mastering);
+			if (!rec.isEmpty() && mastering > 0f)
+				AudioMetrics.normalizeToRms(rec, mastering);
+		}
+		return new Asset(f.getName(), f, rec, rec.size() * (long) WavConstants.JACK_BUFFER, category);
+	}
+
+	public static boolean isAudio(File f) {
+		if (!f.isFile())
+			return false;
+		String name = f.getName().toLowerCase();
+		return name.endsWith(WavConstants.WAV_EXT) || FromDisk.isCompressedFormat(name);
+	}
+
+}
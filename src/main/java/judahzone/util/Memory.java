@@ -2,60 +2,90 @@ package judahzone.util;
 
 import java.io.File;
 import java.util.Arrays;
-import java.util.concurrent.LinkedBlockingQueue;
-import java. util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.swing.JOptionPane;
 
+import judahzone.data.OffHeap;
 import judahzone.data.Recording;
-
+import judahzone.data.Streaming;
+import judahzone.prism.AnyThread;
+import judahzone.prism.ManyToOne;
+import judahzone.prism.PrismRT;
+
+/** Pool of preallocated audio frames ({@code float[channelCount][bufSize]}).
+ * <p>Frames are handed out and reclaimed whole through a lock-free {@link AnyThread} ring,
+ * so {@link #getFrame()} on the audio path neither allocates nor locks while the pool has stock.
+ * Released frames go back dirty and are zeroed one at a time as {@link #getFrame()} hands them out,
+ * so dropping a long Recording never stalls the releasing thread.
+ * A background top-up replenishes the pool when it drops below {@link #THRESHOLD}: getFrame() queues the
+ * pool on a preallocated ring and unparks one long-lived refill thread, so asking allocates nothing either.
+ * Depletions (pool empty, frame allocated inline) and the low-water mark are counted for diagnostics. */
 public class Memory {
 
+    private static final int DEPLETED = RTLogger.code(Memory.class, "DEPLETED (%d channels, low water %d)", true);
+
+    /** pools waiting for a top-up, at most one entry each (see reloading) */
+    private static final ManyToOne<Memory> REFILLS = new ManyToOne<>(64);
+    /** platform thread: unparking a virtual one from the audio thread would go through its scheduler */
+    private static final Thread REFILL = Thread.ofPlatform().daemon().name("jz-memory").start(Memory::refill);
+
     public static final Memory STEREO = new Memory(WavConstants.STEREO, Constants.bufSize());
     public static final Memory MONO = new Memory(WavConstants.MONO, Constants.bufSize());
     public static final float[] ZERO = new float[Constants.bufSize()];
 
+    /** preloaded channel buffers (frames = PRELOAD / channelCount) */
     static final int PRELOAD = 4096;
     static final int THRESHOLD = (int)(PRELOAD * 0.9f);
     static final int RELOAD = (int)(PRELOAD * 0.25f);
-    static final String ERROR = "DEPLETED";
 
-    private final LinkedBlockingQueue<float[]> memory = new LinkedBlockingQueue<>();
+    private final AnyThread<float[][]> memory;
     private final int channelCount;
     private final int bufSize;
+    private final int threshold;
+    private final int reload;
     private final AtomicBoolean reloading = new AtomicBoolean(false);
 
+    private final AtomicLong depleted = new AtomicLong();
+    private final AtomicLong allocated = new AtomicLong();
+    private volatile int lowWater;
+
     public Memory(int numChannels, int bufferSize) {
         this.channelCount = numChannels;
         this.bufSize = bufferSize;
-        preload(PRELOAD);
+        int frames = Math.max(1, PRELOAD / numChannels);
+        this.threshold = Math.max(1, THRESHOLD / numChannels);
+        this.reload = Math.max(1, RELOAD / numChannels);
+        // headroom so released frames and top-ups fit alongside the preload
+        memory = new AnyThread<>(frames * 2, frames, this::allocate);
+        lowWater = memory.size();
     }
 
+    /** RT-safe while the pool has stock: no allocation, no lock. @return a zeroed frame */
+    @PrismRT
     public float[][] getFrame() {
+        int available = memory.size();
+        if (available < lowWater)
+            lowWater = available;
         // Only trigger reload if not already in progress
-        if (memory.size() < THRESHOLD && reloading.compareAndSet(false, true)) {
-            Threads.execute(() -> {
-                try {
-                    preload(RELOAD);
-                } finally {
-                    reloading.set(false);
-                }
-            });
+        if (available < threshold && reloading.compareAndSet(false, true)) {
+            if (REFILLS.offer(this))
+                LockSupport.unpark(REFILL);
+            else
+                reloading.set(false); // ring full, ask again next frame
         }
 
-        try {
-            float[][] result = new float[channelCount][];
-            for (int idx = 0; idx < channelCount; idx++) {
-                float[] ch = memory.poll();
-                if (ch == null)
-                    throw new InterruptedException(ERROR);
-                result[idx] = ch;
-            }
+        float[][] result = memory.poll();
+        if (result != null) {
+            for (float[] channel : result)
+                Arrays.fill(channel, 0f);
             return result;
-        } catch (InterruptedException e) {
-            RTLogger.warn(this, e);
-            return new float[channelCount][bufSize];
         }
+        depleted.incrementAndGet();
+        RTLogger.rt(DEPLETED, channelCount, lowWater);
+        return allocate();
     }
 
     public void catchUp(Recording tape, int length) {
@@ -63,24 +93,84 @@ public class Memory {
             tape.add(getFrame());
     }
 
-    private void preload(final int amount) {
-        for (int i = 0; i < amount; i++)
-            memory.add(new float[bufSize]);
+    private float[][] allocate() {
+        allocated.incrementAndGet();
+        return new float[channelCount][bufSize];
+    }
+
+    /** refill thread: top up whichever pools asked, then park until the next one does */
+    private static void refill() {
+        for (;;) {
+            Memory m;
+            while ((m = REFILLS.poll()) != null) {
+                try {
+                    m.topUp();
+                } catch (Throwable t) { // keep refilling the other pools
+                    RTLogger.warn(Memory.class, t);
+                }
+            }
+            LockSupport.park(REFILLS);
+        }
+    }
+
+    private void topUp() {
+        try {
+            for (int i = 0; i < reload; i++)
+                if (!memory.offer(allocate()))
+                    break;
+        } finally {
+            reloading.set(false);
+        }
     }
 
+    /** return a frame to the pool as is, {@link #getFrame()} zeroes it when handing it out again
+     * (dropped to GC if the pool is full or the shape doesn't match) */
 	public void release(float[][] buf) {
-		Threads.execute(() -> {
-			for (float[] channel : buf) {
-				Arrays.fill(channel, 0f);
-				memory.add(channel);
-			}
-		});
+		pool(buf);
+	}
+
+	/** @return false if the pool is full */
+	private boolean pool(float[][] buf) {
+		if (buf == null || buf.length != channelCount)
+			return true;
+		for (float[] channel : buf)
+			if (channel == null || channel.length != bufSize)
+				return true;
+		return memory.offer(buf);
 	}
 
+	/** pool job's frames until the pool is full, the rest go to GC. Bounded by the pool's capacity, no zeroing. */
 	public void release(Recording job) {
-		for(int i = 0; i < job.size(); i++) {
-			release(job.get(i));
-		}
+		if (job instanceof OffHeap || job instanceof Streaming)
+			return; // blocks are copies, not pool frames
+		for (int i = 0; i < job.size(); i++)
+			if (!pool(job.get(i)))
+				return;
+	}
+
+	/** @return frames currently pooled */
+	public int available() {
+		return memory.size();
+	}
+
+	/** @return number of times the pool ran dry and a frame was allocated inline */
+	public long getDepleted() {
+		return depleted.get();
+	}
+
+	/** @return total frames created by this pool (preload + top-ups + depletions) */
+	public long getAllocated() {
+		return allocated.get();
+	}
+
+	/** @return fewest frames observed in the pool (high-water mark of demand) */
+	public int getLowWater() {
+		return lowWater;
+	}
+
+	/** restart low-water tracking from the current pool level */
+	public void resetLowWater() {
+		lowWater = memory.size();
 	}
 
 	 /**
@@ -1,12 +1,12 @@
 package judahzone.util;
 
-import java.awt.Point;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Stack;
+import java.util.concurrent.atomic.AtomicReference;
 
+import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.ShortMessage;
 
 import judahzone.api.MidiOut;
@@ -15,6 +15,7 @@ import judahzone.api.RTNotes;
 import judahzone.api.UINotes;
 import judahzone.prism.IntRing;
 import judahzone.prism.MidiPack;
+import judahzone.prism.PackedMidi;
 import judahzone.prism.PrismRT;
 import judahzone.prism.PrismUI;
 import lombok.Getter;
@@ -31,16 +32,25 @@ import lombok.Getter;
  *  - The IntRing is a SPSC transfer used to publish compact events from RT -> UI.
  *    The RT path enqueues an event and also updates RT-side `actives` so there is
  *    no need for the UI to process the ring before synths react. The ring only
- *    serves to bring the UI snapshot (`voices`, allocations allowed) into sync.
+ *    serves to bring the UI voice list and its snapshot into sync.
  *
- *  - UI thread drains the ring in {@link #update()} (UI-only). The UI may allocate
- *    (Point, arrays, etc.) and may synchronize on `this` to rebuild snapshots.
+ *  - Only the RT thread writes `actives` and its index. A UI note-on ({@link #on(int, int)}) goes into
+ *    a second IntRing, UI -> RT, that the RT thread drains at its next note event or {@link #sync()}.
  *
- * Notes about mono/monoStack:
- *  - Mono behaviour attempts to mirror classic synths (last-note-steal with
- *    possible restoration). The `monoStack` here is an allocation-using Stack
- *    for simplicity; if mono operations occur on RT you should replace this with
- *    a preallocated primitive stack or ring to avoid heap allocations on RT.
+ *  - UI thread drains the ring in {@link #update()} (UI-only) into a preallocated primitive
+ *    voice list and publishes it as a packed int[] snapshot guarded by a version counter
+ *    (seqlock): any number of views copy it with {@link #snapshot(int[])} / {@link #actives(int[])}
+ *    into their own arrays, without allocating and without a monitor shared with the RT path.
+ *
+ * Mono (legato) mode:
+ *  - The RT thread keeps every held key in a fixed 128-entry primitive stack plus a
+ *    128-bit held set, and sounds one of them per {@link MonoPriority} (last, lowest
+ *    or highest). Releasing the sounding key falls back to the next candidate.
+ *  - The sounding note is published as {@link #getMonoTarget()} with {@link #isLegato()}
+ *    (entered while another key was held) so a synth can glide instead of retriggering.
+ *  - {@link #setMono(boolean)} and {@link #setMonoPriority(MonoPriority)} only publish a
+ *    request; the RT thread applies it at its next note event or {@link #sync()}. No monitors,
+ *    no allocation. Until then the UI keeps showing the voices of the old mode.
  *
  * In short: RT methods are annotated @PrismRT and are safe for audio threads.
  * UI methods are annotated @PrismUI and may allocate / take locks.
@@ -52,28 +62,53 @@ public class Notes implements RTNotes, UINotes {
 	private final MidiUpdate ping;
 	private final MidiOut source;
 
- 	/* UI snapshot of active voices (Point.x = key, Point.y = velocity). Mutated only on UI thread. */
- 	private final Stack<Point> voices = new Stack<Point>();
+ 	/* UI working set of voices in arrival order. Mutated only by UI writers, under voiceLock. */
+ 	private final int[] voiceKeys;
+ 	private final int[] voiceVels;
+ 	private int voiceCount;
+ 	private final Object voiceLock = new Object();
+
+ 	/* Published UI snapshot: MidiPack.packAdd(key, velocity) per voice. Seqlock: odd version = write in progress. */
+ 	private final int[] snapshot;
+ 	private int snapshotSize;
+ 	private volatile int version;
 
 	/* RT-safe packed actives (preallocated). Stores MidiPack integers; 0 == empty. */
 	private final int[] actives;
 	/* next index for oldest-steal overwrite. Volatile for visibility between RT/UI. */
 	private volatile int activesNext = 0;
-
-	@Getter private volatile boolean mono = false; // cross-thread visibility for mono mode
-	private int oldest = 0; // packed mono ancestor (0 == none)
- 	/* Primitive mono stack for RT-safety (preallocated in ctor). */
- 	private int[] monoStack; // packed notes held in mono mode
- 	private int monoStackTop = 0;
+	/* O(1) lookups beside the ordered actives: 128-bit key set, velocity and actives slot per key, free slots. RT writer. */
+	private volatile long activeLo, activeHi;
+	private final byte[] velocities = new byte[128];
+	private final int[] slotOf = new int[128];
+	private final int[] freeSlots;
+	private int freeTop;
+
+	/** which held key sounds in mono mode */
+	public static enum MonoPriority { LAST, LOW, HIGH }
+
+	@Getter private volatile boolean mono = false; // requested mode, applied by the RT thread
+	@Getter private volatile MonoPriority monoPriority = MonoPriority.LAST;
+	private volatile boolean monoApplied; // mode in effect, RT writer
+	/* RT mono allocator: held keys in press order, held set and velocity per key. Preallocated. */
+	private final int[] heldOrder = new int[128];
+	private int heldTop;
+	private long heldLo, heldHi;
+	private final byte[] heldVel = new byte[128];
+	/* sounding mono note, MidiPack.packAdd(key, velocity), 0 == none; legato: entered while another key was held */
+	private volatile int monoTarget;
+	private volatile boolean legato;
 
 	/* Event ring: RT pushes packed events, UI polls them. */
 	private final IntRing ring;
+	/* UI note-ons for the RT thread, MidiPack.packAdd(key, velocity). Producers serialized on voiceLock. */
+	private final IntRing inbox;
 
 	/* Dirty flag for backward/backstop rebuilds. Volatile for visibility. */
 	private volatile boolean dirty = false;
 
-	/* Mapping of input ShortMessage -> generated output keys (non-RT: UI/seq usage). */
-	private final Map<ShortMessage, List<Integer>> mappings = new HashMap<>();
+	/* Input (status, data1) -> generated output keys. Immutable table, replaced copy-on-write, read lock-free on RT. */
+	private final AtomicReference<MappingTable> mappings = new AtomicReference<>(MappingTable.EMPTY);
 
 //	public Notes(MidiOut source, MidiUpdate ping) {
 //		this(ping, source, 32);
@@ -88,42 +123,38 @@ public class Notes implements RTNotes, UINotes {
  		this.ping = ping;
  		this.source = source;
  		this.ring = ring;
+		this.inbox = new IntRing(ring.capacity());
  		// canonical polyphony
  		this.actives = new int[ring.capacity()];
-		// monoStack sized to polyphony + small headroom; avoids heap ops on RT path
-		this.monoStack = new int[this.actives.length + 4];
+		this.voiceKeys = new int[this.actives.length];
+		this.voiceVels = new int[this.actives.length];
+		this.snapshot = new int[this.actives.length];
+		this.freeSlots = new int[this.actives.length];
+		reindex();
  	}
 
+	/** Switch mono (legato) mode. Lock-free: the RT thread switches at its next note event or {@link #sync()}. */
+	@PrismUI
 	public void setMono(boolean mono) {
 		this.mono = mono;
-		if (mono) { // for live switching, oldest = top of stack, if any
-			synchronized (this) {
-				// clear primitive mono stack
-				monoStackTop = 0;
-				if (!voices.isEmpty()) {
-					Point oldestVoice = voices.get(0);
-					oldest = MidiPack.packAdd(oldestVoice.x, oldestVoice.y);
-				} else {
-					oldest = 0;
-				}
-				// collapse RT-side actives to the single mono note (UI initiated change)
-				for (int i = 0; i < actives.length; i++)
-					actives[i] = 0;
-				if (oldest != 0) {
-					actives[0] = oldest;
-					activesNext = (1) % actives.length;
-				} else {
-					activesNext = 0;
-				}
-			}
-			dirty = true;
-			if (ping != null) ping.updateMidi(source);
-		} else {
-			// leaving mono: clear stack, force UI rebuild from current actives
-			monoStackTop = 0;
-			dirty = true;
-			if (ping != null) ping.updateMidi(source);
-		}
+		dirty = true;
+		if (ping != null) ping.updateMidi(source);
+	}
+
+	@PrismUI
+	public void setMonoPriority(MonoPriority priority) {
+		if (priority != null)
+			monoPriority = priority;
+	}
+
+	/** @return the sounding mono note as MidiPack.packAdd(key, velocity), 0 if none. Portamento target, any thread. */
+	public int getMonoTarget() {
+		return monoTarget;
+	}
+
+	/** @return true if the current mono note was entered while another key was held (glide, don't retrigger) */
+	public boolean isLegato() {
+		return legato;
 	}
 
 //	/** @return data1 values of actives notes in ascending (piano key) order. UI thread. */
@@ -135,72 +166,70 @@ public class Notes implements RTNotes, UINotes {
 	@Override
 	@PrismRT
 	public void off(int data1) {
+		drainInbox();
 		if (data1 < 0 || data1 > 127) return;
 
+		// RT state first, so isNoteOn(...) reflects the release without waiting for UI drain
+		removeActivePacked(data1);
+		if (!ring.offerRemove(data1))
+			dirty = true; // ring full: UI rebuilds from actives
 		if (ping != null)
 			ping.updateMidi(source);
-
-		// Prefer lock-free queued event
-		boolean ok = ring.offerRemove(data1);
-		if (ok)
-			// when enqueue succeeds;
-			return;
-
-		// fallback: clear any matching packed entries
-		removeActivePacked(data1);
-		dirty = true;
 	}
 
-	/* UI helper: update snapshot and arrays when UI triggers an on (allocations allowed on UI). */
+	/** UI note-on: queued for the RT thread, which applies it at its next note event or {@link #sync()}
+	 * and publishes it back to {@link #update()} like any other note. */
+	@PrismUI
 	public void on(int data1, int data2) {
 		if (data1 < 0 || data1 > 127) return;
-		int packed = MidiPack.packAdd(data1, data2);
-		// keep packed array consistent for both RT and UI readers
-		addActivePacked(packed);
+		boolean queued;
+		synchronized (voiceLock) { // RT never waits on voiceLock
+			queued = inbox.offer(MidiPack.packAdd(data1, data2));
+		}
+		if (!queued)
+			RTLogger.warn(this, "UI note-on dropped: " + data1);
+	}
 
-		// update UI stack (synchronized because voices accessed on UI)
-		synchronized (this) {
-			if (mono) {
-				voices.clear();
-				voices.add(new Point(data1, data2));
-				// do NOT set 'oldest' here; addActivePacked already handled mono stacking/restoration
-			} else {
-				for (int i = 0; i < voices.size(); i++) {
-					Point p = voices.get(i);
-					if (p.x == data1) {
-						voices.set(i, new Point(data1, data2));
-						if (ping != null) ping.updateMidi(source);
-						return;
-					}
-				}
-				if (voices.size() < ring.capacity())
-					voices.add(new Point(data1, data2));
-				else {
-					voices.remove(0);
-					voices.add(new Point(data1, data2));
-				}
-			}
+	/** RT: apply UI note-ons queued by {@link #on(int, int)} and a pending {@link #setMono(boolean)}.
+	 * Note events do it anyway; engines call this once per buffer (see {@link RTNotes#sync()}) so
+	 * neither waits for the next MIDI event. */
+	@PrismRT @Override
+	public void sync() {
+		drainInbox();
+		if (mono != monoApplied) {
+			monoMode();
+			if (ping != null) ping.updateMidi(source);
 		}
-		if (ping != null)
-			ping.updateMidi(source);
+	}
+
+	private void drainInbox() {
+		for (int p = inbox.poll(); p != Integer.MIN_VALUE; p = inbox.poll())
+			noteOn(MidiPack.data1(p), MidiPack.data2(p));
 	}
 
 	/* RT: add or re-trigger a note. Accepts a ShortMessage from audio/MIDI threads. */
 	@PrismRT @Override
 	public void on(ShortMessage msg) {
+		drainInbox();
 		if (msg == null) return;
-		int d1 = msg.getData1();
-		int d2 = msg.getData2();
+		noteOn(msg.getData1(), msg.getData2());
+	}
+
+	/** RT: note on/off straight from a {@link PackedMidi} int, no ShortMessage. Other messages ignored. */
+	@PrismRT @Override
+	public void receive(int packed) {
+		drainInbox();
+		if (PackedMidi.isNote(packed))
+			noteOn(PackedMidi.data1(packed), PackedMidi.isNoteOff(packed) ? 0 : PackedMidi.data2(packed));
+	}
+
+	/** RT note on (velocity 0 = note off) */
+	private void noteOn(int d1, int d2) {
 		if (d1 < 0 || d1 > 127) return;
 		if (d2 == 0) { // note-off encoded as velocity 0
-			boolean ok = ring.offerNoteOff(d1);
-			if (ok) {
-				if (ping != null) ping.updateMidi(source);
-				return;
-			}
-			// fallback: remove any matching packed entries
 			removeActivePacked(d1);
-			dirty = true;
+			if (!ring.offerNoteOff(d1))
+				dirty = true; // ring full: UI rebuilds from actives
 			if (ping != null) ping.updateMidi(source);
 			return;
 		}
@@ -224,12 +253,32 @@ public class Notes implements RTNotes, UINotes {
 	@PrismRT
 	public boolean isNoteOn(int data1) {
 		if (data1 < 0 || data1 > 127) return false;
-		for (int i = 0; i < actives.length; i++) {
-			int p = actives[i];
-			if (p != 0 && MidiPack.data1(p) == data1)
-				return true;
-		}
-		return false;
+		return ((data1 < 64 ? activeLo : activeHi) & (1L << data1)) != 0;
+	}
+
+	/** @return velocity of an active key, 0 if the key is off. RT-safe, O(1). */
+	@PrismRT
+	public int getVelocity(int data1) {
+		return isNoteOn(data1) ? velocities[data1] : 0;
+	}
+
+	/** @return number of active keys (the sounding note in mono mode). RT-safe. */
+	@PrismRT
+	public int activeCount() {
+		return Long.bitCount(activeLo) + Long.bitCount(activeHi);
+	}
+
+	/** RT: drop every active note and held mono note (all-notes-off). Allocation-free; touches only sounding keys. */
+	@PrismRT
+	public void panic() {
+		drainInbox(); // queued before the panic, silenced with the rest
+		clearActives();
+		heldTop = 0;
+		heldLo = heldHi = 0;
+		monoTarget = 0;
+		legato = false;
+		dirty = true; // UI rebuilds an empty snapshot
+		if (ping != null) ping.updateMidi(source);
 	}
 
 //	/* UINotes API: copy active keys into provided set (UI thread). */
@@ -248,87 +297,136 @@ public class Notes implements RTNotes, UINotes {
 	@PrismUI
 	public void update() {
 		boolean hadEvents = false;
-		// Drain ring completely (UI thread only, allocations allowed here)
-		for (;;) {
-			int packed = ring.pollPack();
-			if (packed == 0) break; // EMPTY sentinel
-			hadEvents = true;
-			int cmd = IntRing.cmdType(packed);
-			int d1 = IntRing.data1(packed);
-			int d2 = IntRing.data2(packed);
-			switch (cmd) {
-				case MidiPack.CMD_ADD, MidiPack.CMD_RETRIGGER -> {
-					// update packed actives (keeps snapshot consistent for other UI readers)
-					if (d1 >= 0 && d1 < 128) {
-						addActivePacked(MidiPack.packAdd(d1, d2));
-					}
-					// update UI voices stack
-					synchronized (this) {
-						if (mono) {
-							voices.clear();
-							voices.add(new Point(d1, d2));
-							oldest = MidiPack.packAdd(d1, d2);
-						} else {
-							boolean found = false;
-							for (int i = 0; i < voices.size(); i++) {
-								Point p = voices.get(i);
-								if (p.x == d1) {
-									voices.set(i, new Point(d1, d2));
-									found = true;
-									break;
-								}
-							}
-							if (!found) {
-								if (voices.size() < ring.capacity())
-									voices.add(new Point(d1, d2));
-								else {
-									voices.remove(0);
-									voices.add(new Point(d1, d2));
-								}
-							}
-						}
+		synchronized (voiceLock) {
+			// clear first: an RT change made while we rebuild flags the next update
+			boolean rebuild = dirty;
+			dirty = false;
+			// the mode the RT thread applied, not the one requested: monoTarget belongs to it
+			boolean m = monoApplied;
+			// Drain ring completely (UI thread only)
+			for (;;) {
+				int packed = ring.pollPack();
+				if (packed == 0) break; // EMPTY sentinel
+				hadEvents = true;
+				int cmd = IntRing.cmdType(packed);
+				int d1 = IntRing.data1(packed);
+				int d2 = IntRing.data2(packed);
+				switch (cmd) {
+					case MidiPack.CMD_ADD, MidiPack.CMD_RETRIGGER -> {
+						// RT already updated actives, only the UI voice list follows the ring
+						voiceOn(d1, d2);
 					}
-				}
-				case MidiPack.CMD_NOTE_OFF, MidiPack.CMD_REMOVE -> {
-					if (d1 >= 0 && d1 < 128) {
-						removeActivePacked(d1);
+					case MidiPack.CMD_NOTE_OFF, MidiPack.CMD_REMOVE -> {
+						voiceOff(d1);
 					}
-					synchronized (this) {
-						for (int i = voices.size() - 1; i >= 0; i--) {
-							if (voices.get(i).x == d1)
-								voices.remove(i);
-						}
+					default -> {
+						// unknown command: ignore
 					}
 				}
-				default -> {
-					// unknown command: ignore
-				}
 			}
+
+			if (m && (hadEvents || rebuild)) {
+				// mono: the UI shows the note the RT allocator picked, whatever the priority
+				int target = monoTarget;
+				voiceCount = 0;
+				if (target != 0)
+					voiceOn(MidiPack.data1(target), MidiPack.data2(target));
+				publish();
+			} else if (!hadEvents && rebuild) {
+				// RT fallback path flagged dirty: rebuild voices from RT arrays
+				voiceCount = 0;
+				for (int i = 0; i < actives.length && voiceCount < voiceKeys.length; i++) {
+					int p = actives[i];
+					if (p != 0)
+						voiceOn(MidiPack.data1(p), MidiPack.data2(p));
+				}
+				publish();
+			} else if (hadEvents)
+				publish();
 		}
+	}
+
+	/* -------------------- UI voice list + seqlock snapshot -------------------- */
 
-		// If no ring events processed but RT flagged dirty (fallback path), rebuild full snapshot
-		if (!hadEvents && !dirty && voices.size() > 0)
+	/** add or re-velocity a voice, oldest evicted when full. Caller holds voiceLock. */
+	private void voiceOn(int key, int vel) {
+		if (monoApplied) {
+			voiceKeys[0] = key;
+			voiceVels[0] = vel;
+			voiceCount = 1;
 			return;
+		}
+		for (int i = 0; i < voiceCount; i++) {
+			if (voiceKeys[i] == key) {
+				voiceVels[i] = vel;
+				return;
+			}
+		}
+		if (voiceCount == voiceKeys.length) {
+			System.arraycopy(voiceKeys, 1, voiceKeys, 0, voiceCount - 1);
+			System.arraycopy(voiceVels, 1, voiceVels, 0, voiceCount - 1);
+			voiceCount--;
+		}
+		voiceKeys[voiceCount] = key;
+		voiceVels[voiceCount++] = vel;
+	}
 
-		if (!hadEvents && dirty) {
-			synchronized (this) {
-				voices.clear();
-				if (mono && oldest != 0) {
-					int key = MidiPack.data1(oldest);
-					int vel = MidiPack.data2(oldest);
-					voices.add(new Point(key, vel));
-				} else {
-					for (int i = 0; i < actives.length; i++) {
-						int p = actives[i];
-						if (p != 0) {
-							voices.add(new Point(MidiPack.data1(p), MidiPack.data2(p)));
-							if (voices.size() >= ring.capacity()) break;
-						}
-					}
-				}
-				dirty = false;
+	/** remove every voice on key, keeping order. Caller holds voiceLock. */
+	private void voiceOff(int key) {
+		int n = 0;
+		for (int i = 0; i < voiceCount; i++) {
+			if (voiceKeys[i] != key) {
+				voiceKeys[n] = voiceKeys[i];
+				voiceVels[n++] = voiceVels[i];
 			}
 		}
+		voiceCount = n;
+	}
+
+	/** copy the voice list into the snapshot. Caller holds voiceLock (single writer). */
+	private void publish() {
+		int v = version;
+		version = v + 1; // odd: readers retry
+		VarHandle.storeStoreFence();
+		for (int i = 0; i < voiceCount; i++)
+			snapshot[i] = MidiPack.packAdd(voiceKeys[i], voiceVels[i]);
+		snapshotSize = voiceCount;
+		version = v + 2; // release
+	}
+
+	/** Copy the voice snapshot, MidiPack.packAdd(key, velocity) per voice in arrival order,
+	 * into dst without allocating or locking. Any thread.
+	 * @return voices copied (at most dst.length) */
+	@PrismUI
+	public int snapshot(int[] dst) {
+		for (;;) {
+			int v = version;
+			if ((v & 1) != 0) {
+				Thread.onSpinWait();
+				continue;
+			}
+			int n = Math.min(snapshotSize, dst.length);
+			for (int i = 0; i < n; i++)
+				dst[i] = snapshot[i];
+			VarHandle.loadLoadFence();
+			if (version == v)
+				return n;
+		}
+	}
+
+	/** Copy active keys (data1) in arrival order into keys. Any thread, allocation-free.
+	 * @return keys copied */
+	@PrismUI @Override
+	public int actives(int[] keys) {
+		int n = snapshot(keys);
+		for (int i = 0; i < n; i++)
+			keys[i] = MidiPack.data1(keys[i]);
+		return n;
+	}
+
+	/** @return snapshot version: views can skip a repaint while it hasn't changed */
+	public int getVersion() {
+		return version;
 	}
 
 	/* UI may change pedal state; notify listeners. */
@@ -350,21 +448,21 @@ public class Notes implements RTNotes, UINotes {
 
 	@Override
 	public boolean isEmpty() {
-		synchronized (this) {
-			return voices.isEmpty();
+		for (;;) {
+			int v = version;
+			int n = snapshotSize;
+			VarHandle.loadLoadFence();
+			if ((v & 1) == 0 && version == v)
+				return n == 0;
+			Thread.onSpinWait();
 		}
 	}
 
-	/* UI snapshot of active keys as int[] (ascending by insertion order). */
+	/* UI snapshot of active keys as a new int[] (insertion order). Prefer {@link #actives(int[])}. */
 	@PrismUI @Override
 	public int[] actives() {
-		synchronized (this) {
-			int n = voices.size();
-			int[] out = new int[n];
-			for (int i = 0; i < n; i++)
-				out[i] = voices.get(i).x;
-			return out;
-		}
+		int[] out = new int[snapshot.length];
+		return Arrays.copyOf(out, actives(out));
 	}
 
 	@Override
@@ -374,47 +472,30 @@ public class Notes implements RTNotes, UINotes {
 
 	/* -------------------- Helpers for packed actives -------------------- */
 
-	/** Add/replace an active packed entry. RT-safe: no allocations, bounded loops (polyphony small). */
+	/** Add/replace an active packed entry. RT-safe: no allocations, O(1) outside mono mode. */
 	private void addActivePacked(int packed) {
 		int key = MidiPack.data1(packed);
 
-		// preserve previous active in 'monoStack' and replace with single packed entry
-		if (mono) {
-			int current = actives.length > 0 ? actives[0] : 0;
-			if (current != 0 && MidiPack.data1(current) != key) {
-				// push previous active so it can be restored when the new note releases
-				if (monoStackTop < monoStack.length) monoStack[monoStackTop++] = current;
-				else { // overflow: drop oldest stored entry (shift left) then append
-					for (int i = 1; i < monoStackTop; i++) monoStack[i - 1] = monoStack[i];
-					monoStack[monoStackTop - 1] = current;
-				}
-			}
-			oldest = packed;
-			for (int i = 0; i < actives.length; i++)
-				actives[i] = 0;
-			actives[0] = packed;
-			activesNext = (1) % actives.length;
-			dirty = true;
+		if (monoMode()) {
+			monoOn(key, MidiPack.data2(packed));
 			return;
 		}
 
-		// 1) try update existing entry (retrigger)
-		for (int i = 0; i < actives.length; i++) {
-			int p = actives[i];
-			if (p != 0 && MidiPack.data1(p) == key) {
-				actives[i] = packed;
-				return;
-			}
+		// 1) retrigger: update existing entry in place
+		if (isNoteOn(key)) {
+			actives[slotOf[key]] = packed;
+			velocities[key] = (byte) MidiPack.data2(packed);
+			return;
 		}
-		// 2) find empty slot
-		for (int i = 0; i < actives.length; i++) {
-			if (actives[i] == 0) {
-				actives[i] = packed;
-				return;
-			}
+		// 2) free slot
+		if (freeTop > 0) {
+			place(freeSlots[--freeTop], packed);
+			return;
 		}
 		// 3) steal oldest (round-robin)
-		actives[activesNext] = packed;
+		int slot = activesNext;
+		clearBit(MidiPack.data1(actives[slot]));
+		place(slot, packed);
 		activesNext = (activesNext + 1) % actives.length;
 		// mark dirty to force UI rebuild if needed
 		dirty = true;
@@ -424,89 +505,291 @@ public class Notes implements RTNotes, UINotes {
 	private void removeActivePacked(int key) {
 		boolean cleared = false;
 
-		// Mono: if we remove the current active mono note, restore the previous (monoStack) if present.
-		if (mono) {
-			int current = actives.length > 0 ? actives[0] : 0;
-			if (current != 0 && MidiPack.data1(current) == key) {
-				// removing the currently sounding note
-				for (int i = 0; i < actives.length; i++) actives[i] = 0;
-				// restore previous note if available
-				if (monoStackTop > 0) {
-					int prev = monoStack[--monoStackTop];
-					actives[0] = prev;
-					oldest = prev;
-					activesNext = (1) % actives.length;
-				} else {
-					oldest = 0;
-				}
-				cleared = true;
-			} else if (monoStackTop > 0) {
-				// if removing a stored previous note, drop it from the primitive stack
-				for (int i = monoStackTop - 1; i >= 0; i--) {
-					int p = monoStack[i];
-					if (MidiPack.data1(p) == key) {
-						// remove by shifting left to preserve order
-						for (int j = i; j < monoStackTop - 1; j++) monoStack[j] = monoStack[j + 1];
-						monoStackTop--;
-						cleared = true;
-						break;
-					}
-				}
+		if (monoMode()) {
+			cleared = monoOff(key);
+		} else if (isNoteOn(key)) {
+			int slot = slotOf[key];
+			actives[slot] = 0;
+			freeSlots[freeTop++] = slot;
+			clearBit(key);
+			cleared = true;
+		}
+
+		if (cleared) dirty = true;
+	}
+
+	/* -------------------- RT mono allocator -------------------- */
+
+	/** RT: apply a pending setMono(). @return true if mono mode is in effect */
+	private boolean monoMode() {
+		boolean m = mono;
+		if (m == monoApplied)
+			return m;
+		monoApplied = m;
+		heldTop = 0;
+		heldLo = heldHi = 0;
+		if (m) { // hold whatever is sounding (slot order), then pick one
+			for (int i = 0; i < actives.length; i++)
+				if (actives[i] != 0)
+					hold(MidiPack.data1(actives[i]), MidiPack.data2(actives[i]));
+			clearActives();
+			monoTarget = 0;
+			monoSelect();
+		} else { // the mono note stays on as the only poly voice
+			monoTarget = 0;
+			legato = false;
+			reindex();
+		}
+		dirty = true;
+		return m;
+	}
+
+	private void monoOn(int key, int vel) {
+		if (isHeld(key))
+			unhold(key); // re-press: move to the top, new velocity
+		hold(key, vel);
+		monoSelect();
+	}
+
+	/** @return true if key was held */
+	private boolean monoOff(int key) {
+		if (!isHeld(key))
+			return false;
+		unhold(key);
+		monoSelect();
+		return true;
+	}
+
+	/** sound the held key chosen by the priority, publish it as the portamento target */
+	private void monoSelect() {
+		int key = switch (monoPriority) {
+			case LOW -> heldLo != 0 ? Long.numberOfTrailingZeros(heldLo)
+					: heldHi != 0 ? 64 + Long.numberOfTrailingZeros(heldHi) : -1;
+			case HIGH -> heldHi != 0 ? 127 - Long.numberOfLeadingZeros(heldHi)
+					: heldLo != 0 ? 63 - Long.numberOfLeadingZeros(heldLo) : -1;
+			default -> heldTop > 0 ? heldOrder[heldTop - 1] : -1;
+		};
+		int previous = monoTarget;
+		if (key < 0) {
+			if (previous != 0) {
+				clearActives();
+				monoTarget = 0;
+				legato = false;
+				dirty = true;
 			}
-		} else {
-			for (int i = 0; i < actives.length; i++) {
-				int p = actives[i];
-				if (p != 0 && MidiPack.data1(p) == key) {
-					actives[i] = 0;
-					cleared = true;
-				}
+			return;
+		}
+		int packed = MidiPack.packAdd(key, heldVel[key]);
+		if (packed == previous)
+			return;
+		clearActives();
+		place(0, packed);
+		activesNext = (1) % actives.length;
+		legato = previous != 0;
+		monoTarget = packed;
+		dirty = true;
+	}
+
+	private boolean isHeld(int key) {
+		return ((key < 64 ? heldLo : heldHi) & (1L << key)) != 0;
+	}
+
+	private void hold(int key, int vel) {
+		if (isHeld(key))
+			return;
+		heldOrder[heldTop++] = key;
+		heldVel[key] = (byte) vel;
+		if (key < 64)
+			heldLo |= 1L << key;
+		else
+			heldHi |= 1L << key;
+	}
+
+	private void unhold(int key) {
+		for (int i = heldTop - 1; i >= 0; i--) {
+			if (heldOrder[i] == key) {
+				System.arraycopy(heldOrder, i + 1, heldOrder, i, heldTop - 1 - i);
+				heldTop--;
+				break;
 			}
 		}
+		if (key < 64)
+			heldLo &= ~(1L << key);
+		else
+			heldHi &= ~(1L << key);
+	}
 
-		if (cleared) dirty = true;
+	/** write packed into slot and index it (slot must not be on the free stack) */
+	private void place(int slot, int packed) {
+		int key = MidiPack.data1(packed);
+		actives[slot] = packed;
+		slotOf[key] = slot;
+		velocities[key] = (byte) MidiPack.data2(packed);
+		if (key < 64)
+			activeLo |= 1L << key;
+		else
+			activeHi |= 1L << key;
 	}
 
-	/* -------------------- Mapping helpers (non-RT; used by sequencer/arp) -------------------- */
+	private void clearBit(int key) {
+		if (key < 64)
+			activeLo &= ~(1L << key);
+		else
+			activeHi &= ~(1L << key);
+	}
+
+	/** empty actives by walking only the set bits; every slot becomes free */
+	private void clearActives() {
+		for (long bits = activeLo; bits != 0; bits &= bits - 1)
+			actives[slotOf[Long.numberOfTrailingZeros(bits)]] = 0;
+		for (long bits = activeHi; bits != 0; bits &= bits - 1)
+			actives[slotOf[64 + Long.numberOfTrailingZeros(bits)]] = 0;
+		activeLo = activeHi = 0;
+		freeTop = 0;
+		for (int i = actives.length - 1; i >= 0; i--) // lowest slot on top
+			freeSlots[freeTop++] = i;
+	}
+
+	/** rebuild key set, slot index and free slots from actives[] (after a bulk rewrite) */
+	private void reindex() {
+		activeLo = activeHi = 0;
+		freeTop = 0;
+		for (int i = actives.length - 1; i >= 0; i--) {
+			int p = actives[i];
+			if (p == 0)
+				freeSlots[freeTop++] = i;
+			else
+				place(i, p);
+		}
+	}
+
+	/* -------------------- Mappings (chord/arp remapping, lookups RT-safe) -------------------- */
+
+	/** Sorted packed keys with their outputs. Never mutated after construction. */
+	private static final class MappingTable {
+		static final MappingTable EMPTY = new MappingTable(new int[0], new int[0][]);
+		final int[] keys;
+		final int[][] outs;
+		MappingTable(int[] keys, int[][] outs) {
+			this.keys = keys;
+			this.outs = outs;
+		}
+		int[] get(int key) {
+			int i = Arrays.binarySearch(keys, key);
+			return i < 0 ? null : outs[i];
+		}
+		MappingTable with(int key, int[] out) {
+			int i = Arrays.binarySearch(keys, key);
+			if (i >= 0) {
+				int[][] o = outs.clone();
+				o[i] = out;
+				return new MappingTable(keys, o);
+			}
+			i = -i - 1;
+			int n = keys.length;
+			int[] k = new int[n + 1];
+			int[][] o = new int[n + 1][];
+			System.arraycopy(keys, 0, k, 0, i);
+			System.arraycopy(outs, 0, o, 0, i);
+			k[i] = key;
+			o[i] = out;
+			System.arraycopy(keys, i, k, i + 1, n - i);
+			System.arraycopy(outs, i, o, i + 1, n - i);
+			return new MappingTable(k, o);
+		}
+		MappingTable without(int key) {
+			int i = Arrays.binarySearch(keys, key);
+			if (i < 0)
+				return this;
+			int n = keys.length - 1;
+			int[] k = new int[n];
+			int[][] o = new int[n][];
+			System.arraycopy(keys, 0, k, 0, i);
+			System.arraycopy(outs, 0, o, 0, i);
+			System.arraycopy(keys, i + 1, k, i, n - i);
+			System.arraycopy(outs, i + 1, o, i, n - i);
+			return new MappingTable(k, o);
+		}
+	}
 
 	/** Simple holder to snapshot mappings for callers. UI/non-RT usage only. */
 	public static record Mapping(ShortMessage key, List<Integer> values) {}
 
+	/** Lookup key: (status &lt;&lt; 8) | data1. NOTE_OFF is folded into NOTE_ON so a key's release finds its mapping. */
+	public static int mappingKey(int status, int data1) {
+		if ((status & 0xF0) == ShortMessage.NOTE_OFF)
+			status = ShortMessage.NOTE_ON | (status & 0x0F);
+		return ((status & 0xFF) << 8) | (data1 & 0x7F);
+	}
+
+	public static int mappingKey(ShortMessage msg) {
+		return mappingKey(msg.getStatus(), msg.getData1());
+	}
+
+	/** Map an input (status, data1) to output keys. Lock-free copy-on-write, any non-RT thread. */
+	@PrismUI
+	public void addMapping(int status, int data1, int... outs) {
+		final int key = mappingKey(status, data1);
+		final int[] out = outs == null ? new int[0] : outs.clone();
+		mappings.updateAndGet(t -> t.with(key, out));
+	}
+
 	/** Record association between an input ShortMessage and the generated output keys. UI thread only. */
 	@PrismUI
 	public void addMapping(ShortMessage in, List<Integer> outs) {
 		if (in == null) return;
-		synchronized (this) {
-			mappings.put(in, new ArrayList<>(outs != null ? outs : List.of()));
-		}
+		int[] out = outs == null ? new int[0] : outs.stream().mapToInt(Integer::intValue).toArray();
+		addMapping(in.getStatus(), in.getData1(), out);
+	}
+
+	/** RT: outputs mapped to (status, data1), shared and preallocated (don't modify), null if unmapped.
+	 * No hashing, boxing or locks: one volatile read and a binary search. */
+	@PrismRT
+	public int[] mapping(int status, int data1) {
+		return mappings.get().get(mappingKey(status, data1));
+	}
+
+	@PrismRT
+	public int[] mapping(ShortMessage in) {
+		return in == null ? null : mapping(in.getStatus(), in.getData1());
+	}
+
+	/** Remove and return stored outputs for (status, data1), null if unmapped. */
+	@PrismUI
+	public int[] removeMapping(int status, int data1) {
+		final int key = mappingKey(status, data1);
+		MappingTable prev = mappings.getAndUpdate(t -> t.without(key));
+		return prev.get(key);
 	}
 
 	/** Remove and return stored outputs for input message. UI thread only. */
 	@PrismUI
 	public List<Integer> removeMapping(ShortMessage in) {
 		if (in == null) return null;
-		synchronized (this) {
-			return mappings.remove(in);
-		}
+		int[] out = removeMapping(in.getStatus(), in.getData1());
+		return out == null ? null : Arrays.stream(out).boxed().toList();
 	}
 
 	/** Snapshot mappings for iteration. UI thread only. */
 	@PrismUI
 	public List<Mapping> mappingsSnapshot() {
-		synchronized (this) {
-			List<Mapping> out = new ArrayList<>(mappings.size());
-			for (Map.Entry<ShortMessage, List<Integer>> e : mappings.entrySet()) {
-				out.add(new Mapping(e.getKey(), new ArrayList<>(e.getValue())));
+		MappingTable t = mappings.get();
+		List<Mapping> out = new ArrayList<>(t.keys.length);
+		for (int i = 0; i < t.keys.length; i++) {
+			try {
+				ShortMessage key = new ShortMessage(t.keys[i] >> 8, t.keys[i] & 0x7F, 0);
+				out.add(new Mapping(key, new ArrayList<>(Arrays.stream(t.outs[i]).boxed().toList())));
+			} catch (InvalidMidiDataException e) {
+				RTLogger.warn(this, e);
 			}
-			return out;
 		}
+		return out;
 	}
 
-	/** Clear all stored mappings. UI thread only. */
+	/** Clear all stored mappings. */
 	@PrismUI
 	public void clearMappings() {
-		synchronized (this) {
-			mappings.clear();
-		}
+		mappings.set(MappingTable.EMPTY);
 	}
 
 }
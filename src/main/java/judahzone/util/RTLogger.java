@@ -1,12 +1,19 @@
 package judahzone.util;
 
+import java.util.Arrays;
+import java.util.IllegalFormatException;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
 import org.apache.logging.log4j.Level; // Log4j2 Level
 
+import judahzone.prism.PrismRT;
+import judahzone.prism.SequenceRing;
 import lombok.extern.log4j.Log4j2;      // Lombok Log4j2
 /**
  * Headless logging service with a static API.
@@ -14,6 +21,11 @@ import lombok.extern.log4j.Log4j2;      // Lombok Log4j2
  * - Queue and dispatcher are private/static.
  * - GUI or other components can register as Participants to receive notifications.
  * - Non-blocking offer() is used so callers (including real-time threads) don't block.
+ * - Audio-thread fast path: {@link #code(Object, String, boolean)} registers a message once, then
+ *   {@link #rt(int, long, long)} stores the code and numeric arguments in a preallocated lock-free ring.
+ *   No allocation, no locks, no string building; the dispatcher formats the text later.
+ * - Nothing is printed inline: stack traces and dropped-event notices come from the dispatcher.
+ * - The dispatcher parks while both are empty; the first event after that unparks it.
  *
  * This is a replacement for the previous LogService but exposes the original style
  * of static methods so you can call RTLogger.log(...), RTLogger.warn(...), etc.
@@ -33,8 +45,71 @@ public final class RTLogger {
 
     public record LogEvent(String source, String message, boolean warn) { }
 
+    private record Entry(LogEvent event, Throwable trace) { }
+
+    /** a registered RT message: format takes up to two long arguments (%d, %x, ...) */
+    private record Code(String source, String format, boolean warn) { }
+
+    /** RT events waiting for the dispatcher */
+    public static final int RT_CAPACITY = 1024;
+
     // bounded queue to avoid unbounded memory growth; offer() used to avoid blocking callers
-    private static final BlockingQueue<LogEvent> queue = new LinkedBlockingQueue<>(1024);
+    private static final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>(1024);
+    private static final AtomicLong dropped = new AtomicLong();
+
+    /** RT ring: multiple producers, the dispatcher consumes */
+    private static final class RtRing extends SequenceRing {
+        final int[] codes = new int[RT_CAPACITY];
+        final long[] arg1 = new long[RT_CAPACITY];
+        final long[] arg2 = new long[RT_CAPACITY];
+        long head; // dispatcher only
+
+        RtRing() {
+            super(RT_CAPACITY);
+        }
+
+        boolean offer(int code, long a, long b) {
+            long pos = claim();
+            if (pos < 0)
+                return false;
+            int idx = slot(pos);
+            codes[idx] = code;
+            arg1[idx] = a;
+            arg2[idx] = b;
+            publish(pos);
+            return true;
+        }
+
+        /** @return true if an event is claimed past head, published or still being written */
+        boolean pending() {
+            return count(head) > 0;
+        }
+
+        boolean ready() {
+            return published(head);
+        }
+
+        /** dispatcher: hand out everything published */
+        void drain() {
+            while (true) {
+                final long pos = head;
+                if (!published(pos))
+                    return;
+                int idx = slot(pos);
+                int code = codes[idx];
+                long a = arg1[idx], b = arg2[idx];
+                head = pos + 1;
+                free(pos); // slot free for the next lap
+                dispatchRT(code, a, b);
+            }
+        }
+    }
+
+    private static final RtRing ring = new RtRing();
+    private static final AtomicLong rtDropped = new AtomicLong();
+    private static volatile Code[] codes = new Code[0];
+    /** the dispatcher, while it is about to park or parked */
+    private static final AtomicReference<Thread> sleeper = new AtomicReference<>();
 
     // participants (GUI, file writer, tests, etc.)
     private static final CopyOnWriteArrayList<Participant> participants = new CopyOnWriteArrayList<>();
@@ -48,36 +123,24 @@ public final class RTLogger {
     // start dispatcher thread once
     static {
     	// initLoging();
-        Thread.startVirtualThread(() -> {
+        // platform thread: rt() may unpark it, a virtual thread's unpark would go through its scheduler
+        Thread.ofPlatform().daemon().name("RTLogger").start(() -> {
+            long reportedDrops = 0, reportedRtDrops = 0;
             try {
                 while (true) {
-                    LogEvent ev = queue.take(); // blocking consumer
-                    // notify registered participants (old-style) with String[] payload
-                    String[] payload = new String[] {
-                        ev.source(),
-                        ev.message(),
-                        ev.warn() ? "WARN" : "INFO"
-                    };
-                    for (Participant p : participants) {
-                        try {
-                            p.process(payload);
-                        } catch (Exception ex) {
-                            log.error("RTLogger participant failed", ex);
-                        }
+                    idle();
+                    ring.drain();
+                    Entry e;
+                    while ((e = queue.poll()) != null) {
+                        dispatch(e.event(), e.trace());
+                        ring.drain();
                     }
-                    // notify functional consumers with the record
-                    for (Consumer<LogEvent> c : consumers) {
-                        try {
-                            c.accept(ev);
-                        } catch (Exception ex) {
-                            log.error("RTLogger consumer failed", ex);
-                        }
-                    }
-                    // write to log4j/backing logger as well
-                    if (ev.warn()) {
-                        log.warn(ev.source() + " WARN: " + ev.message());
-                    } else {
-                        log.info(ev.source() + ": " + ev.message());
+                    long d = dropped.get(), rd = rtDropped.get();
+                    if (d != reportedDrops || rd != reportedRtDrops) {
+                        dispatch(new LogEvent("RTLogger", "dropped " + (d - reportedDrops) + " events, "
+                                + (rd - reportedRtDrops) + " RT events", true), null);
+                        reportedDrops = d;
+                        reportedRtDrops = rd;
                     }
                 }
             } catch (Throwable t) {
@@ -88,6 +151,76 @@ public final class RTLogger {
         });
     }
 
+    private static void dispatch(LogEvent ev, Throwable trace) {
+        // notify registered participants (old-style) with String[] payload
+        String[] payload = new String[] {
+            ev.source(),
+            ev.message(),
+            ev.warn() ? "WARN" : "INFO"
+        };
+        for (Participant p : participants) {
+            try {
+                p.process(payload);
+            } catch (Exception ex) {
+                log.error("RTLogger participant failed", ex);
+            }
+        }
+        // notify functional consumers with the record
+        for (Consumer<LogEvent> c : consumers) {
+            try {
+                c.accept(ev);
+            } catch (Exception ex) {
+                log.error("RTLogger consumer failed", ex);
+            }
+        }
+        // write to log4j/backing logger as well
+        if (ev.warn()) {
+            log.warn(ev.source() + " WARN: " + ev.message());
+        } else {
+            log.info(ev.source() + ": " + ev.message());
+        }
+        if (trace != null)
+            trace.printStackTrace();
+    }
+
+    /**Dispatcher: park until there is something to dispatch. Announces itself in sleeper before the
+     * last look at both queues; a producer that got in after that look sees sleeper and unparks. */
+    private static void idle() {
+        Thread self = Thread.currentThread();
+        while (queue.isEmpty() && !ring.pending()) {
+            sleeper.set(self);
+            if (queue.isEmpty() && !ring.pending())
+                LockSupport.park(ring);
+            sleeper.set(null);
+        }
+        // a producer may have claimed an RT slot and not yet published it
+        while (queue.isEmpty() && !ring.ready())
+            Thread.onSpinWait();
+    }
+
+    /** producers: wake a parked dispatcher (empty to non-empty), otherwise a volatile read */
+    private static void wake() {
+        if (sleeper.get() == null)
+            return;
+        Thread t = sleeper.getAndSet(null);
+        if (t != null)
+            LockSupport.unpark(t);
+    }
+
+    /** dispatcher: format an RT event and hand it out */
+    private static void dispatchRT(int code, long a, long b) {
+        Code[] c = codes;
+        if (code < 0 || code >= c.length)
+            return;
+        String msg;
+        try {
+            msg = String.format(c[code].format(), a, b);
+        } catch (IllegalFormatException ex) {
+            msg = c[code].format() + " " + a + " " + b;
+        }
+        dispatch(new LogEvent(c[code].source(), msg, c[code].warn()), null);
+    }
+
     // ======== Public static API (convenience / compatibility) ========
 
     public static Level getLevel() {
@@ -118,7 +251,7 @@ public final class RTLogger {
     }
 
     public static void log(Object caller, String msg) {
-        offer(new LogEvent(caller instanceof String ? caller.toString() : caller.getClass().getSimpleName(), msg, false));
+        offer(new LogEvent(caller instanceof String ? caller.toString() : caller.getClass().getSimpleName(), msg, false), null);
     }
 
     public static void log(Class<?> caller, String msg) {
@@ -126,7 +259,7 @@ public final class RTLogger {
     }
 
     public static void warn(Object caller, String msg) {
-        offer(new LogEvent(caller instanceof String ? caller.toString() : caller.getClass().getSimpleName(), msg, true));
+        offer(new LogEvent(caller instanceof String ? caller.toString() : caller.getClass().getSimpleName(), msg, true), null);
     }
 
     public static void warn(Class<?> caller, String msg) {
@@ -134,13 +267,12 @@ public final class RTLogger {
     }
 
     public static void warn(Object o, Throwable e) {
-        warn(o, e == null ? "<null>" : e.getLocalizedMessage());
-        if (e != null) e.printStackTrace();
+        String source = o instanceof String ? o.toString() : o instanceof Class<?> c ? c.getSimpleName() : o.getClass().getSimpleName();
+        offer(new LogEvent(source, e == null ? "<null>" : e.getLocalizedMessage(), true), e);
     }
 
     public static void warn(Throwable t) {
-        warn("RTLogger", t == null ? "<null>" : t.getMessage());
-        if (t != null) t.printStackTrace();
+        offer(new LogEvent("RTLogger", t == null ? "<null>" : t.getMessage(), true), t);
     }
 
     public static void debug(Object caller, String msg) {
@@ -155,14 +287,60 @@ public final class RTLogger {
             log(caller, "debug " + msg);
         }
     }
-    // ======== Internal helper ========
 
-    private static void offer(LogEvent ev) {
-        boolean ok = queue.offer(ev);
-        if (!ok) {
-            // queue full; avoid blocking caller — drop and warn the logging backend
-            log.warn("RTLogger queue full; dropping event: " + ev);
+    // ======== RT fast path ========
+
+    /**Register an RT message once (class init, constructor), not on the audio thread.
+     * @param caller a Class, a String or an instance, as for log()/warn()
+     * @param format String.format pattern for up to two long arguments, e.g. "depleted, low water %d"
+     * @return the code to pass to {@link #rt(int, long, long)} */
+    public static synchronized int code(Object caller, String format, boolean warn) {
+        String source = caller instanceof String ? caller.toString()
+                : caller instanceof Class<?> c ? c.getSimpleName() : caller.getClass().getSimpleName();
+        Code[] current = codes;
+        Code[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = new Code(source, format, warn);
+        codes = next;
+        return current.length;
+    }
+
+    @PrismRT
+    public static boolean rt(int code) {
+        return rt(code, 0L, 0L);
+    }
+
+    @PrismRT
+    public static boolean rt(int code, long a) {
+        return rt(code, a, 0L);
+    }
+
+    /** Allocation-free, lock-free log from any RT thread. @return false if the ring was full (counted) */
+    @PrismRT
+    public static boolean rt(int code, long a, long b) {
+        if (!ring.offer(code, a, b)) {
+            rtDropped.incrementAndGet();
+            return false; // full
         }
+        wake();
+        return true;
+    }
+
+    /** @return log()/warn() events dropped because the queue was full */
+    public static long getDropped() {
+        return dropped.get();
+    }
+
+    /** @return rt() events dropped because the RT ring was full */
+    public static long getRtDropped() {
+        return rtDropped.get();
+    }
+
+    // ======== Internal helper ========
+
+    private static void offer(LogEvent ev, Throwable trace) {
+        if (!queue.offer(new Entry(ev, trace)))
+            dropped.incrementAndGet(); // queue full: never block the caller, the dispatcher reports drops
+        wake();
     }
 
     // Prevent instantiation
@@ -1,18 +1,51 @@
 package judahzone.util;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 /** Reusable parameter smoothing for RT-safe changes (pitch, feedback, damp, etc).
-    Avoids repeated countdown/lerp logic across synth voices. */
+    Avoids repeated countdown/lerp logic across synth voices.
+    <p>Wait-free on both sides: setTarget/reset never lock, they stamp the value with a sequence number
+    and publish it in a single long (one slot for targets, one for resets). The RT thread notices the
+    new stamp at its next {@link #next()} and applies it, so a knob twiddle can't block the callback
+    and any thread (UI or RT, e.g. Segment.reset() inside Envelope.trigger()) may write.
+    The last write wins; a target written after a reset ramps from the reset value.</p> */
 public class Ramp {
 
 private final int rampLen; // samples to smooth over (immutable)
 private final float invRamp;
 
-// Volatile fields to ensure cross-thread visibility without locking in audio thread.
-private volatile int countdown;
-private volatile float current;
-private volatile float target;
-private volatile float step;
-private volatile boolean initialized;
+// Shared: [sequence:32][float bits:32], written with one release store
+private long targetCmd;
+private long resetCmd;
+private int sequence; // stamp source, getAndAdd
+
+// RT owned. current/countdown are also written opaque so get()/isRamping() can peek from the UI
+private int countdown;
+private float current;
+private float target;
+private float step;
+private boolean initialized;
+private int seenTarget;
+private int seenReset;
+
+private static final VarHandle TARGET_CMD;
+private static final VarHandle RESET_CMD;
+private static final VarHandle SEQUENCE;
+private static final VarHandle COUNTDOWN;
+private static final VarHandle CURRENT;
+static {
+    try {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        TARGET_CMD = lookup.findVarHandle(Ramp.class, "targetCmd", long.class);
+        RESET_CMD = lookup.findVarHandle(Ramp.class, "resetCmd", long.class);
+        SEQUENCE = lookup.findVarHandle(Ramp.class, "sequence", int.class);
+        COUNTDOWN = lookup.findVarHandle(Ramp.class, "countdown", int.class);
+        CURRENT = lookup.findVarHandle(Ramp.class, "current", float.class);
+    } catch (ReflectiveOperationException e) {
+        throw new ExceptionInInitializerError(e);
+    }
+}
 
 /** Create ramp with given smoothing length (samples). */
 public Ramp(int rampLenSamples) {
@@ -25,77 +58,96 @@ public Ramp(int rampLenSamples) {
     this.initialized = false;
 }
 
-/** Set target value; starts ramp if not already ramping.
-    First ever set jumps immediately (useful for initialization). */
-public synchronized void setTarget(float value) {
-    // If currently ramping, update target and restart ramp from current value
-    if (countdown > 0) {
-        this.target = value;
-        this.countdown = rampLen; // restart smooth ramp
-        this.step = (this.target - this.current) * invRamp;
-        return;
-    }
+private long stamp(float value) {
+    int seq = (int) SEQUENCE.getAndAdd(this, 1) + 1;
+    return ((long) seq << 32) | (Float.floatToRawIntBits(value) & 0xFFFFFFFFL);
+}
 
-    // Idle case
-    if (!initialized) {
-        // first set -> immediate
-        this.current = value;
-        this.target = value;
-        this.initialized = true;
-        this.countdown = 0;
-        this.step = 0f;
-    } else {
-        // subsequent idle sets: if same value, do nothing; otherwise start ramp
-        if (Float.compare(this.current, value) == 0) {
-            this.target = value;
-            this.step = 0f;
-        } else {
-            this.target = value;
-            this.countdown = rampLen; // begin smooth ramp
-            this.step = (this.target - this.current) * invRamp;
-        }
-    }
+/** Set target value; starts ramp if not already ramping.
+    First ever set jumps immediately (useful for initialization). Any thread, wait-free. */
+public void setTarget(float value) {
+    TARGET_CMD.setRelease(this, stamp(value));
 }
 
 /** Force immediate set from non-RT side (alias for reset). */
-public synchronized void setImmediate(float value) {
+public void setImmediate(float value) {
     reset(value);
 }
 
+/** Reset to immediate (no ramp); useful on trigger. Any thread, wait-free. */
+public void reset(float value) {
+    RESET_CMD.setRelease(this, stamp(value));
+}
+
 /** Advance one sample; returns current interpolated value. (RT thread) */
 public float next() {
+    long t = (long) TARGET_CMD.getAcquire(this);
+    long r = (long) RESET_CMD.getAcquire(this);
+    if ((int) (t >>> 32) != seenTarget || (int) (r >>> 32) != seenReset)
+        apply(t, r);
     int c = countdown; // local snapshot
     if (c > 0) {
-        // update current and countdown without locks
-        current += step;
+        float cur;
         c--;
-        countdown = c; // publish new countdown
-        if (c == 0) {
-            // ensure exact final value
-            current = target;
-            step = 0f;
-        }
+        if (c == 0)
+            cur = target; // ensure exact final value
+        else
+            cur = current + step;
+        CURRENT.setOpaque(this, cur);
+        COUNTDOWN.setOpaque(this, c); // publish new countdown
+        return cur;
     }
     return current;
 }
 
-/** Get current value without advancing. (RT thread ok) */
+/** RT: consume newly stamped commands, in stamp order */
+private void apply(long t, long r) {
+    int ts = (int) (t >>> 32);
+    int rs = (int) (r >>> 32);
+    boolean newTarget = ts != seenTarget;
+    boolean newReset = rs != seenReset;
+    seenTarget = ts;
+    seenReset = rs;
+    if (newReset) {
+        float value = Float.intBitsToFloat((int) r);
+        target = value;
+        step = 0f;
+        initialized = true;
+        CURRENT.setOpaque(this, value);
+        COUNTDOWN.setOpaque(this, 0);
+    }
+    if (newTarget && (!newReset || ts - rs > 0))
+        ramp(Float.intBitsToFloat((int) t));
+}
+
+private void ramp(float value) {
+    if (!initialized) {
+        // first set -> immediate
+        target = value;
+        step = 0f;
+        initialized = true;
+        CURRENT.setOpaque(this, value);
+        COUNTDOWN.setOpaque(this, 0);
+    } else if (countdown == 0 && Float.compare(current, value) == 0) {
+        // idle at that value already
+        target = value;
+        step = 0f;
+    } else {
+        // begin (or restart from the current value) a smooth ramp
+        target = value;
+        step = (value - current) * invRamp;
+        COUNTDOWN.setOpaque(this, rampLen);
+    }
+}
+
+/** Current value as of the last next() (RT thread ok, UI may peek). */
 public float get() {
-    return current;
+    return (float) CURRENT.getOpaque(this);
 }
 
-/** Check if ramp is active. (RT thread ok) */
+/** Check if ramp is active as of the last next(). (RT thread ok, UI may peek) */
 public boolean isRamping() {
-    return countdown > 0;
+    return (int) COUNTDOWN.getOpaque(this) > 0;
 }
 
-/** Reset to immediate (no ramp); useful on trigger. */
-public synchronized void reset(float value) {
-    this.current = value;
-    this.target = value;
-    this.countdown = 0;
-    this.step = 0f;
-    this.initialized = true;
 }
-
-}
\ No newline at end of file
@@ -5,17 +5,31 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Lightweight helper for submitting tasks and performing a best-effort shutdown.
+ * Background work in three named lanes, each with queue depth and latency metrics:
  *
- * - Worker threads are created as daemon threads so forgotten tasks won't keep the JVM alive.
+ * - {@link #IO}: one virtual thread per task (file, network, json, blocking waits). {@link #execute(Runnable)}
+ *   and {@link #virtual(Runnable)} land here.
+ * - {@link #DSP}: one shared ForkJoinPool sized to logical cores minus judah.reserved.cores for CPU-bound
+ *   work (decoding, analysis). Never block in it.
+ * - {@link #TIMER}: a single-threaded ScheduledExecutorService. {@link #timer(long, Runnable)} hands the
+ *   task to IO when due, so nothing sleeps on a pooled thread.
+ *
+ * - Pool threads are daemons so forgotten tasks won't keep the JVM alive.
  * - A Runtime shutdown hook performs a best-effort graceful shutdown.
  * - Call {@link #shutdown()} explicitly for deterministic cleanup.
  * - {@link #getShutdown()} returns a {@link Closeable} that delegates to {@link #shutdown()}
@@ -23,102 +37,285 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class Threads {
 
-    // Make worker threads daemon so they won't block JVM exit if forgotten.
-    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger(0);
-    private static final ThreadFactory DAEMON_FACTORY = r -> {
-        Thread t = new Thread(r, "jz-worker-" + THREAD_COUNTER.getAndIncrement());
-        t.setDaemon(true);
-        return t;
-    };
-
-    private static final ExecutorService threads = Executors.newFixedThreadPool(256, DAEMON_FACTORY);
-
-    // virtual threads executor -- still should be shut down explicitly
-    private static final ExecutorService virtual = Executors.newVirtualThreadPerTaskExecutor();
-
-    static {
-        // Register shutdown hook to attempt graceful shutdown on JVM exit.
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            shutdown(); // best-effort cleanup
-        }, "jz-shutdown-hook"));
-    }
-
-    public static void sleep(long millis) {
-        try {
-            Thread.sleep(millis);
-        } catch (Throwable t) {
-            System.err.println(t.getMessage());
-        }
-    }
-
-    public static void timer(long msec, final Runnable r) {
-        threads.execute(() -> {
-            sleep(msec);
-            r.run();
-        });
-    }
-
-    public static void execute(Runnable r) {
-	    try {
-	        threads.execute(r);
-	    } catch (RejectedExecutionException e) {
-	        // pool shutting down: run inline or in a dedicated non-pooled thread, by golly
-	        new Thread(r).start();
-	    }
-    }
-
-    public static void virtual(Runnable r) {
-        virtual.execute(r);
-    }
-
-    public static void writeToFile(File file, String content) {
-        execute(() -> {
-            try {
-                Files.write(Paths.get(file.toURI()), content.getBytes());
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        });
-    }
-
-    /**
-     * Attempt graceful shutdown of internal executors.
-     * Safe to call multiple times.
-     */
-    public static void shutdown() {
-        // First try graceful shutdown
-        try {
-            threads.shutdown();
-            virtual.shutdown();
-            // wait a short while for tasks to finish
-            if (!threads.awaitTermination(500, TimeUnit.MILLISECONDS)) {
-                threads.shutdownNow();
-            }
-            if (!virtual.awaitTermination(500, TimeUnit.MILLISECONDS)) {
-                virtual.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            // restore interrupt status and force shutdown
-            Thread.currentThread().interrupt();
-            threads.shutdownNow();
-            virtual.shutdownNow();
-        } catch (Throwable t) {
-            // last resort
-            threads.shutdownNow();
-            virtual.shutdownNow();
-        }
-    }
-
 	// reserve N cores (default 1) for OS/other processes and ensure at least 1 worker.
+	// Make configurable with -Djudah.reserved.cores=<n>
 	private static final int RESERVED_CORES = Math.max(0, Integer.getInteger("judah.reserved.cores", 1));
 	private static final int LOGICAL_CORES = Runtime.getRuntime().availableProcessors();
 	private static final int DSP_WORKERS = Math.max(1, LOGICAL_CORES - RESERVED_CORES);
-	// Make configurable with -Djudah.reserved.cores=<n>
+
+	/** A named executor that counts what goes through it. Metrics are approximate while tasks are in flight. */
+	public static final class Lane implements Executor {
+		private final String name;
+		private final ExecutorService service;
+		private final LongAdder submitted = new LongAdder();
+		private final LongAdder started = new LongAdder();
+		private final LongAdder completed = new LongAdder();
+		private final LongAdder rejected = new LongAdder();
+		private final LongAdder waitNanos = new LongAdder();
+		private final AtomicLong maxWait = new AtomicLong();
+		private final AtomicLong maxQueued = new AtomicLong();
+
+		Lane(String name, ExecutorService service) {
+			this.name = name;
+			this.service = service;
+		}
+
+		@Override
+		public void execute(Runnable r) {
+			submitted.increment();
+			long depth = getQueued();
+			if (depth > maxQueued.get())
+				maxQueued.accumulateAndGet(depth, Math::max);
+			try {
+				service.execute(wrap(r, System.nanoTime()));
+			} catch (RejectedExecutionException e) {
+				// lane shutting down: run in a dedicated non-pooled thread, by golly
+				rejected.increment();
+				Thread.ofVirtual().start(wrap(r, System.nanoTime()));
+			}
+		}
+
+		/** @param due nanoTime the task should start at, queue latency is measured from there */
+		Runnable wrap(Runnable r, long due) {
+			return () -> {
+				started.increment();
+				long wait = System.nanoTime() - due;
+				if (wait > 0) {
+					waitNanos.add(wait);
+					if (wait > maxWait.get())
+						maxWait.accumulateAndGet(wait, Math::max);
+				}
+				try {
+					r.run();
+				} finally {
+					completed.increment();
+				}
+			};
+		}
+
+		public String getName() { return name; }
+		/** @return tasks submitted but not started */
+		public long getQueued() { return Math.max(0, submitted.sum() - started.sum()); }
+		/** @return tasks running now */
+		public long getRunning() { return Math.max(0, started.sum() - completed.sum()); }
+		public long getCompleted() { return completed.sum(); }
+		/** @return tasks that arrived after shutdown (run on a spare virtual thread) */
+		public long getRejected() { return rejected.sum(); }
+		/** @return deepest queue seen */
+		public long getMaxQueued() { return maxQueued.get(); }
+		/** @return mean wait between submit (or due time) and start, in microseconds */
+		public double getMeanLatencyMicros() {
+			long n = started.sum();
+			return n == 0 ? 0 : waitNanos.sum() / (n * 1000.0);
+		}
+		/** @return worst wait between submit (or due time) and start, in microseconds */
+		public double getMaxLatencyMicros() { return maxWait.get() / 1000.0; }
+
+		ExecutorService service() { return service; }
+
+		@Override
+		public String toString() {
+			return String.format("%-6s queued %d (max %d)  running %d  done %d  wait %.1f/%.1f us  rejected %d",
+					name, getQueued(), getMaxQueued(), getRunning(), getCompleted(), getMeanLatencyMicros(),
+					getMaxLatencyMicros(), getRejected());
+		}
+	}
+
+	private static final ForkJoinPool DSP_POOL = new ForkJoinPool(DSP_WORKERS, pool -> {
+		ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+		t.setName("jz-dsp-" + t.getPoolIndex());
+		t.setDaemon(true);
+		return t;
+	}, null, true);
+
+	private static final ScheduledThreadPoolExecutor TIMER_POOL = new ScheduledThreadPoolExecutor(1, r -> {
+		Thread t = new Thread(r, "jz-timer");
+		t.setDaemon(true);
+		return t;
+	});
+	static {
+		TIMER_POOL.setRemoveOnCancelPolicy(true);
+	}
+
+	/** blocking work, a virtual thread per task */
+	public static final Lane IO = new Lane("io",
+			Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("jz-io-", 0).factory()));
+	/** CPU-bound work, {@link #getDspWorkers()} threads */
+	public static final Lane DSP = new Lane("dsp", DSP_POOL);
+	/** delayed tasks, see {@link #schedule(Runnable, long, TimeUnit)} */
+	public static final Lane TIMER = new Lane("timer", TIMER_POOL);
+	private static final Lane[] LANES = {IO, DSP, TIMER};
+
+	static {
+		// Register shutdown hook to attempt graceful shutdown on JVM exit.
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			shutdown(); // best-effort cleanup
+		}, "jz-shutdown-hook"));
+	}
+
+	public static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (Throwable t) {
+			System.err.println(t.getMessage());
+		}
+	}
+
+	/** run r on the IO lane after msec */
+	public static void timer(long msec, final Runnable r) {
+		schedule(() -> IO.execute(r), msec, TimeUnit.MILLISECONDS);
+	}
+
+	/** run r on the timer thread after delay; keep it short, hand anything slow to a lane.
+	 * @return null if the lanes are shut down (r still runs, late) */
+	public static ScheduledFuture<?> schedule(Runnable r, long delay, TimeUnit unit) {
+		TIMER.submitted.increment();
+		long due = System.nanoTime() + unit.toNanos(Math.max(0, delay));
+		try {
+			return TIMER_POOL.schedule(TIMER.wrap(r, due), delay, unit);
+		} catch (RejectedExecutionException e) {
+			// shutting down: sleep it out on a spare virtual thread
+			TIMER.rejected.increment();
+			Thread.ofVirtual().start(TIMER.wrap(() -> {
+				sleep(unit.toMillis(delay));
+				r.run();
+			}, System.nanoTime()));
+			return null;
+		}
+	}
+
+	/** background task on the IO lane */
+	public static void execute(Runnable r) {
+		IO.execute(r);
+	}
+
+	public static void virtual(Runnable r) {
+		IO.execute(r);
+	}
+
+	/** CPU-bound task on the shared DSP pool */
+	public static void dsp(Runnable r) {
+		DSP.execute(r);
+	}
+
+	public static void writeToFile(File file, String content) {
+		execute(() -> {
+			try {
+				Files.write(Paths.get(file.toURI()), content.getBytes());
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+	}
+
+	/** @return one metrics line per lane */
+	public static String report() {
+		StringBuilder sb = new StringBuilder();
+		for (Lane lane : LANES)
+			sb.append(lane).append(System.lineSeparator());
+		return sb.toString();
+	}
+
+	public static Closeable getShutdown() {
+		return Threads::shutdown;
+	}
+
+	/**
+	 * Attempt graceful shutdown of the lanes.
+	 * Safe to call multiple times.
+	 */
+	public static void shutdown() {
+		for (Lane lane : LANES)
+			lane.service().shutdown();
+		try {
+			// wait a short while for tasks to finish
+			for (Lane lane : LANES)
+				if (!lane.service().awaitTermination(500, TimeUnit.MILLISECONDS))
+					lane.service().shutdownNow();
+		} catch (InterruptedException e) {
+			// restore interrupt status and force shutdown
+			Thread.currentThread().interrupt();
+			for (Lane lane : LANES)
+				lane.service().shutdownNow();
+		} catch (Throwable t) {
+			// last resort
+			for (Lane lane : LANES)
+				lane.service().shutdownNow();
+		}
+	}
+
+	/** @return worker count for CPU-bound pools (logical cores minus judah.reserved.cores) */
+	public static int getDspWorkers() {
+		return DSP_WORKERS;
+	}
+
+	/**@return a new executor over the DSP lane, owned by the caller like the per-call pool it used to be:
+	 * its shutdown()/awaitTermination() cover only the tasks submitted through it, the shared pool keeps running.
+	 * shutdownNow() stops accepting but can't pull queued tasks back out of the shared pool.
+	 * @deprecated submit to {@link #DSP} (or {@link #dsp(Runnable)}) directly */
+	@Deprecated
 	public static ExecutorService getProcessPool() {
-		return 	Executors.newFixedThreadPool(
-			    DSP_WORKERS, r -> { Thread t = new Thread(r, "DSP-Worker");
-				t.setDaemon(true);
-				return t; });
+		return new DspView();
+	}
+
+	/** shutdown-safe view of the DSP lane, see {@link #getProcessPool()} */
+	private static final class DspView extends AbstractExecutorService {
+		private boolean shut;
+		private int active; // submitted, not finished
+
+		@Override
+		public void execute(Runnable r) {
+			synchronized (this) {
+				if (shut)
+					throw new RejectedExecutionException("shut down");
+				active++;
+			}
+			DSP.execute(() -> {
+				try {
+					r.run();
+				} finally {
+					finished();
+				}
+			});
+		}
+
+		private synchronized void finished() {
+			if (--active == 0)
+				notifyAll();
+		}
+
+		@Override
+		public synchronized void shutdown() {
+			shut = true;
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			shutdown();
+			return List.of();
+		}
+
+		@Override
+		public synchronized boolean isShutdown() {
+			return shut;
+		}
+
+		@Override
+		public synchronized boolean isTerminated() {
+			return shut && active == 0;
+		}
+
+		@Override
+		public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			while (!isTerminated()) {
+				long left = deadline - System.nanoTime();
+				if (left <= 0)
+					return false;
+				TimeUnit.NANOSECONDS.timedWait(this, left);
+			}
+			return true;
+		}
 	}
 
- }
\ No newline at end of file
+}
@@ -2,16 +2,8 @@ package judahzone.util;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Enumeration;
-import java.util.List;
 
-import javax.sound.sampled.AudioFileFormat;
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
 import be.tarsos.dsp.AudioDispatcher;
@@ -39,7 +31,7 @@ import judahzone.data.Recording;
  *   reports a different rate, the code uses the bundled Resampler to convert arrays to the target rate.
  * - MP3 support: AudioDispatcherFactory.fromPipe(...) can delegate to ffmpeg/avconv or system SPI for decoding.
  *   If your environment has ffmpeg in PATH, MP3 (and many other formats) should work.
- * - Writing: save(...) streams the Recording into a WAV file; supports common PCM depths 8/16/24/32.
+ * - Writing: save(...) encodes the Recording through WavWriter; supports PCM depths 8/16/24/32 and 32-bit float.
  *   8-bit is written as unsigned PCM (standard WAV), 16/24/32 as little-endian signed PCM.
  *
  * - This class will handle high sample rates (48k, 96k, etc.) as long as the JVM/OS and audio pipeline
@@ -84,14 +76,11 @@ public final class WavFile {
 
         final float sourceSampleRate = dispatcher.getFormat().getSampleRate();
 
-        final List<Float> samples = new ArrayList<>();
+        final FloatChunks samples = new FloatChunks();
 
         dispatcher.addAudioProcessor(new AudioProcessor() {
             @Override public boolean process(AudioEvent audioEvent) {
-                float[] buf = audioEvent.getFloatBuffer();
-                for (float v : buf) {
-                    samples.add(v);
-                }
+                samples.add(audioEvent.getFloatBuffer());
                 return true;
             }
             @Override public void processingFinished() {}
@@ -99,9 +88,7 @@ public final class WavFile {
 
         dispatcher.run();
 
-        int len = samples.size();
-        float[] out = new float[len];
-        for (int i = 0; i < len; i++) out[i] = samples.get(i);
+        float[] out = samples.toArray();
 
         // If dispatcher did not already supply samples at the requested rate, resample
         if (sourceSampleRate > 0 && sourceSampleRate != targetSampleRate) {
@@ -156,18 +143,16 @@ public final class WavFile {
         final float sourceSampleRate = dispatcher.getFormat().getSampleRate();
         final int sourceChannels = dispatcher.getFormat().getChannels();
 
-        final List<Float> left = new ArrayList<>();
-        final List<Float> right = new ArrayList<>();
+        final FloatChunks left = new FloatChunks();
+        final FloatChunks right = new FloatChunks();
 
         dispatcher.addAudioProcessor(new AudioProcessor() {
             @Override public boolean process(AudioEvent audioEvent) {
                 float[] buf = audioEvent.getFloatBuffer();
 
                 if (sourceChannels <= 1) {
-                    for (float v : buf) {
-                        left.add(v);
-                        right.add(v);
-                    }
+                    left.add(buf);
+                    right.add(buf);
                     return true;
                 }
 
@@ -177,10 +162,8 @@ public final class WavFile {
                 if (buf.length % 2 == 0) {
                     int half = buf.length / 2;
                     // Copy halves as L and R
-                    for (int i = 0; i < half; i++) {
-                        left.add(buf[i]);
-                        right.add(buf[half + i]);
-                    }
+                    left.add(buf, 0, half);
+                    right.add(buf, half, half);
                     return true;
                 }
 
@@ -197,20 +180,16 @@ public final class WavFile {
         dispatcher.run();
 
         int len = Math.min(left.size(), right.size());
-        float[] L = new float[len];
-        float[] R = new float[len];
-        for (int i = 0; i < len; i++) {
-            L[i] = left.get(i);
-            R[i] = right.get(i);
-        }
+        float[] L = left.toArray(len);
+        float[] R = right.toArray(len);
 
         // If dispatcher didn't already supply the requested sample rate, resample
         if (sourceSampleRate > 0 && sourceSampleRate != targetSampleRate) {
             L = resampleArray(L, sourceSampleRate, targetSampleRate);
             R = resampleArray(R, sourceSampleRate, targetSampleRate);
             int newLen = Math.min(L.length, R.length);
-            L = Arrays.copyOf(L, newLen);
-            R = Arrays.copyOf(R, newLen);
+            if (L.length != newLen) L = Arrays.copyOf(L, newLen);
+            if (R.length != newLen) R = Arrays.copyOf(R, newLen);
         }
 
         if (mastering > -0.9999 && mastering < 1.0001f) // 'unity'
@@ -251,7 +230,7 @@ public final class WavFile {
 
         int produced = res.outputSamplesGenerated;
         if (produced <= 0) return new float[0];
-        return Arrays.copyOf(out, produced);
+        return produced == outCap ? out : Arrays.copyOf(out, produced);
     }
 
     // ------------------ WAV writing ------------------
@@ -277,165 +256,27 @@ public final class WavFile {
      *
      * Supported bitDepths: 8 (unsigned), 16 (signed), 24 (signed), 32 (signed).
      *
-     * This implementation streams the conversion from floats to PCM bytes so it
-     * does not need to allocate one big byte[] for the entire file.
+     * Blocks are encoded straight into reusable direct buffers by {@link WavWriter}
+     * (no per-sample stream calls, no byte[] for the entire file).
      */
     public static void save(final Recording source, File destination, final int sampleRate, final int bitDepth, final float denormalize) throws IOException {
-        if (source == null) throw new IllegalArgumentException("source is null");
-        if (destination == null) throw new IllegalArgumentException("destination is null");
-        if (sampleRate <= 0) throw new IllegalArgumentException("sampleRate must be > 0");
-        if (!(bitDepth == 8 || bitDepth == 16 || bitDepth == 24 || bitDepth == 32)) {
-            throw new IllegalArgumentException("unsupported bitDepth: " + bitDepth);
-        }
-
-        // Calculate total frames (sum of block lengths). Each block is float[2][blockLen].
-        long totalFrames = 0;
-        for (float[][] block : source) {
-            if (block == null || block.length < 2) continue;
-            int blockLen = block[0] != null ? block[0].length : 0;
-            totalFrames += blockLen;
-        }
-
-        // AudioFormat: channels = 2 (stereo), sampleSizeInBits = bitDepth, signed = (bitDepth > 8), littleEndian = true
-        boolean signed = bitDepth > 8;
-        int frameSize = (bitDepth / 8) * 2;
-        AudioFormat format = new AudioFormat(sampleRate, bitDepth, 2, signed, false);
-
-        // Create InputStream that converts Recording blocks into interleaved PCM bytes on demand.
-        InputStream pcmStream = new InputStream() {
-            private final Enumeration<float[][]> en = source.elements();
-            private float[][] curBlock = null;
-            private int blockPos = 0; // position within current block (frame index)
-            private boolean closed = false;
-
-            @Override
-            public int read() throws IOException {
-                // not used by AudioInputStream typically; implement single-byte read via buffer fallback
-                byte[] b = new byte[1];
-                int r = read(b, 0, 1);
-                if (r <= 0) return -1;
-                return b[0] & 0xFF;
-            }
-
-            @Override
-            public int read(byte[] b, int off, int len) throws IOException {
-                if (closed) return -1;
-                if (len <= 0) return 0;
-                int bytesWritten = 0;
-
-                while (bytesWritten < len) {
-                    if (curBlock == null) {
-                        if (!en.hasMoreElements()) {
-                            closed = true;
-                            break;
-                        }
-                        curBlock = en.nextElement();
-                        blockPos = 0;
-                        if (curBlock == null || curBlock.length < 2) {
-                            curBlock = null;
-                            continue;
-                        }
-                    }
-                    float[] left = curBlock[0];
-                    float[] right = curBlock[1];
-                    int blockLen = Math.min(left != null ? left.length : 0, right != null ? right.length : 0);
-                    if (blockPos >= blockLen) {
-                        // move to next block
-                        curBlock = null;
-                        continue;
-                    }
-
-                    // For each frame in this block, write interleaved left then right
-                    // Convert floats to PCM bytes and append to b[].
-                    while (blockPos < blockLen && bytesWritten + frameSize <= len) {
-                        float lf = left[blockPos];
-                        float rf = right[blockPos];
-
-                        // convert and write left
-                        bytesWritten += writeSampleToArray(lf, bitDepth, b, off + bytesWritten);
-                        // convert and write right
-                        bytesWritten += writeSampleToArray(rf, bitDepth, b, off + bytesWritten);
-
-                        blockPos++;
-                    }
-                    // if we couldn't fit a full frame due to len, return what we have so far
-                    if (bytesWritten == 0 && (bytesWritten < len)) {
-                        // Not enough space to write one frame; let caller try again with a bigger buffer.
-                        break;
-                    }
-                }
-
-                return bytesWritten == 0 && closed ? -1 : bytesWritten;
-            }
-        };
-
-        // Wrap in AudioInputStream with frame length totalFrames
-        AudioInputStream ais = new AudioInputStream(pcmStream, format, totalFrames);
-
-        // Write WAV
-        AudioSystem.write(ais, AudioFileFormat.Type.WAVE, destination);
-
-        try {
-            ais.close();
-        } catch (IOException ignored) {}
+        save(source, destination, sampleRate, bitDepth, false);
     }
 
     /**
-     * Converts a single float sample in [-1,1] to PCM bytes and writes to dest at offset.
-     * Returns number of bytes written (bitDepth/8).
-     *
-     * For 8-bit we write unsigned PCM (0..255), for others we write signed little-endian PCM.
+     * Save Recording to a 32-bit IEEE float WAV (format tag 3) at Constants.sampleRate().
      */
-    private static int writeSampleToArray(float v, int bitDepth, byte[] dest, int offset) {
-        // clamp input
-        if (v > 1f) v = 1f;
-        if (v < -1f) v = -1f;
-
-        switch (bitDepth) {
-            case 8: {
-                // unsigned 8-bit
-                int iv = Math.round((v * 127.0f) + 128.0f);
-                if (iv < 0) iv = 0;
-                if (iv > 255) iv = 255;
-                dest[offset] = (byte) (iv & 0xFF);
-                return 1;
-            }
-            case 16: {
-                int max = 0x7FFF;
-                int iv = Math.round(v * max);
-                if (iv > max) iv = max;
-                if (iv < -max - 1) iv = -max - 1;
-                // little-endian
-                dest[offset] = (byte) (iv & 0xFF);
-                dest[offset + 1] = (byte) ((iv >> 8) & 0xFF);
-                return 2;
-            }
-            case 24: {
-                // 24-bit signed
-                int max24 = 0x7FFFFF;
-                int iv = Math.round(v * max24);
-                if (iv > max24) iv = max24;
-                if (iv < -max24 - 1) iv = -max24 - 1;
-                dest[offset] = (byte) (iv & 0xFF);
-                dest[offset + 1] = (byte) ((iv >> 8) & 0xFF);
-                dest[offset + 2] = (byte) ((iv >> 16) & 0xFF);
-                return 3;
-            }
-            case 32: {
-                // 32-bit signed integer PCM
-                long max32 = 0x7FFFFFFFL;
-                long ivl = Math.round(v * (double) max32);
-                if (ivl > max32) ivl = max32;
-                if (ivl < -max32 - 1) ivl = -max32 - 1;
-                int iv = (int) ivl;
-                dest[offset] = (byte) (iv & 0xFF);
-                dest[offset + 1] = (byte) ((iv >> 8) & 0xFF);
-                dest[offset + 2] = (byte) ((iv >> 16) & 0xFF);
-                dest[offset + 3] = (byte) ((iv >> 24) & 0xFF);
-                return 4;
+    public static void saveFloat(Recording source, File destination) throws IOException {
+        save(source, destination, Constants.sampleRate(), 32, true);
+    }
+
+    private static void save(Recording source, File destination, int sampleRate, int bitDepth, boolean floating) throws IOException {
+        if (source == null) throw new IllegalArgumentException("source is null");
+        try (WavWriter out = new WavWriter(destination, sampleRate, bitDepth, floating)) {
+            for (float[][] block : source) {
+                if (block == null || block.length < 2) continue;
+                out.write(block);
             }
-            default:
-                throw new IllegalArgumentException("Unsupported bitDepth: " + bitDepth);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,222 @@
+package judahzone.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**Direct stereo WAV encoder: writes the RIFF header itself and converts whole jack buffers into a
+ * small batch of reusable direct ByteBuffers that are flushed with one gathering FileChannel write.
+ * No per-sample stream calls and no garbage per block.
+ *
+ * <p>Supported formats: 8 (unsigned), 16/24/32 (signed little-endian PCM) and 32-bit IEEE float.
+ * The header is written with zero lengths on open and patched in place by {@link #updateHeader()}
+ * and {@link #close()}, so a writer can be fed incrementally (e.g. while recording).</p>
+ * not thread safe */
+public final class WavWriter implements Closeable, WavConstants {
+
+	public static final int PCM = 1;
+	public static final int IEEE_FLOAT = 3;
+	/** jack buffers encoded per gathering write */
+	public static final int BATCH = 16;
+
+	private static final int RIFF_HEADER = 12;
+	private static final int PCM_HEADER = RIFF_HEADER + 8 + 16 + 8;
+	private static final int FLOAT_HEADER = RIFF_HEADER + 8 + 18 + 12 + 8;
+	private static final int FACT_CHUNK_ID = 0x74636166;
+
+	private final File file;
+	private final FileChannel channel;
+	private final int sampleRate;
+	private final int bitDepth;
+	private final boolean floating;
+	private final int frameBytes;
+	private final ByteBuffer header;
+	private final ByteBuffer[] batch = new ByteBuffer[BATCH];
+	private int current; // batch buffer being filled
+	private long frames; // frames encoded so far
+	private long written; // data bytes handed to the channel
+
+	/** 16-bit PCM at Constants.sampleRate() */
+	public WavWriter(File file) throws IOException {
+		this(file, Constants.sampleRate(), VALID_BITS, false);
+	}
+
+	/**@param bitDepth 8, 16, 24 or 32
+	 * @param floating 32-bit IEEE float (bitDepth must be 32) */
+	public WavWriter(File file, int sampleRate, int bitDepth, boolean floating) throws IOException {
+		if (file == null) throw new IllegalArgumentException("destination is null");
+		if (sampleRate <= 0) throw new IllegalArgumentException("sampleRate must be > 0");
+		if (!(bitDepth == 8 || bitDepth == 16 || bitDepth == 24 || bitDepth == 32))
+			throw new IllegalArgumentException("unsupported bitDepth: " + bitDepth);
+		if (floating && bitDepth != 32)
+			throw new IllegalArgumentException("float WAV requires bitDepth 32: " + bitDepth);
+		this.file = file;
+		this.sampleRate = sampleRate;
+		this.bitDepth = bitDepth;
+		this.floating = floating;
+		this.frameBytes = (bitDepth / 8) * STEREO;
+		header = ByteBuffer.allocateDirect(floating ? FLOAT_HEADER : PCM_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < BATCH; i++)
+			batch[i] = ByteBuffer.allocateDirect(frameBytes * JACK_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		fillHeader(0);
+		while (header.hasRemaining())
+			channel.write(header);
+	}
+
+	public File getFile() { return file; }
+
+	/** @return frames encoded so far */
+	public long getFrames() { return frames; }
+
+	/** encode a stereo block (float[2][n]; a mono block is duplicated) */
+	public void write(float[][] block) throws IOException {
+		if (block == null || block.length == 0) return;
+		float[] left = block[LEFT];
+		float[] right = block.length > 1 ? block[RIGHT] : left;
+		if (left == null || right == null) return;
+		write(left, right, Math.min(left.length, right.length));
+	}
+
+	public void write(float[] left, float[] right, int len) throws IOException {
+		int src = 0;
+		while (src < len) {
+			ByteBuffer buf = batch[current];
+			int room = buf.remaining() / frameBytes;
+			if (room == 0) {
+				buf.flip();
+				if (++current == BATCH)
+					flush();
+				continue;
+			}
+			int n = Math.min(room, len - src);
+			encode(left, right, src, n, buf);
+			src += n;
+			frames += n;
+		}
+	}
+
+	private void encode(float[] left, float[] right, int off, int n, ByteBuffer buf) {
+		int end = off + n;
+		if (floating) {
+			for (int i = off; i < end; i++) {
+				buf.putFloat(clamp(left[i]));
+				buf.putFloat(clamp(right[i]));
+			}
+			return;
+		}
+		switch (bitDepth) {
+			case 8 -> {
+				for (int i = off; i < end; i++) {
+					buf.put(pcm8(left[i]));
+					buf.put(pcm8(right[i]));
+				}
+			}
+			case 16 -> {
+				for (int i = off; i < end; i++) {
+					buf.putShort((short) Math.round(clamp(left[i]) * 0x7FFF));
+					buf.putShort((short) Math.round(clamp(right[i]) * 0x7FFF));
+				}
+			}
+			case 24 -> {
+				for (int i = off; i < end; i++) {
+					put24(buf, Math.round(clamp(left[i]) * 0x7FFFFF));
+					put24(buf, Math.round(clamp(right[i]) * 0x7FFFFF));
+				}
+			}
+			default -> {
+				for (int i = off; i < end; i++) {
+					buf.putInt(pcm32(left[i]));
+					buf.putInt(pcm32(right[i]));
+				}
+			}
+		}
+	}
+
+	private static float clamp(float v) {
+		return v > 1f ? 1f : v < -1f ? -1f : v;
+	}
+
+	private static byte pcm8(float v) {
+		int iv = Math.round((clamp(v) * 127.0f) + 128.0f);
+		return (byte) Math.max(0, Math.min(255, iv));
+	}
+
+	private static void put24(ByteBuffer buf, int iv) {
+		buf.put((byte) iv);
+		buf.put((byte) (iv >> 8));
+		buf.put((byte) (iv >> 16));
+	}
+
+	private static int pcm32(float v) {
+		long ivl = Math.round(clamp(v) * (double) 0x7FFFFFFFL);
+		return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, ivl));
+	}
+
+	/** hand all encoded data to the channel in one gathering write */
+	public void flush() throws IOException {
+		int count = current;
+		if (current < BATCH && batch[current].position() > 0) {
+			batch[current].flip();
+			count++;
+		}
+		if (count == 0) {
+			current = 0;
+			return;
+		}
+		long remaining = 0;
+		for (int i = 0; i < count; i++)
+			remaining += batch[i].remaining();
+		while (remaining > 0)
+			remaining -= channel.write(batch, 0, count);
+		written = frames * frameBytes;
+		for (int i = 0; i < count; i++)
+			batch[i].clear();
+		current = 0;
+	}
+
+	/** flush and patch RIFF/data lengths so the file on disk is playable up to this point */
+	public void updateHeader() throws IOException {
+		flush();
+		fillHeader(written);
+		long pos = 0;
+		while (header.hasRemaining())
+			pos += channel.write(header, pos);
+	}
+
+	/** updateHeader() and force contents to the storage device */
+	public void sync() throws IOException {
+		updateHeader();
+		channel.force(false);
+	}
+
+	private void fillHeader(long dataBytes) {
+		int data = (int) Math.min(dataBytes, 0xFFFFFFFFL - header.capacity());
+		header.clear();
+		header.putInt(RIFF_CHUNK_ID).putInt(header.capacity() - 8 + data).putInt(RIFF_TYPE_ID);
+		header.putInt(FMT_CHUNK_ID).putInt(floating ? 18 : 16);
+		header.putShort((short) (floating ? IEEE_FLOAT : PCM)).putShort((short) STEREO);
+		header.putInt(sampleRate).putInt(sampleRate * frameBytes);
+		header.putShort((short) frameBytes).putShort((short) bitDepth);
+		if (floating) {
+			header.putShort((short) 0); // cbSize
+			header.putInt(FACT_CHUNK_ID).putInt(4).putInt((int) (dataBytes / frameBytes));
+		}
+		header.putInt(DATA_CHUNK_ID).putInt(data);
+		header.flip();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			updateHeader();
+		} finally {
+			channel.close();
+		}
+	}
+}
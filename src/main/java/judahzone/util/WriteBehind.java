@@ -0,0 +1,151 @@
+package judahzone.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import judahzone.prism.OffThread;
+import judahzone.prism.OnThread;
+import judahzone.prism.Prism;
+import judahzone.prism.PrismRT;
+
+/**Crash-safe write-behind recorder for {@link judahzone.api.RecordAudio} implementations.
+ *
+ * <p>The RT thread copies each captured block into a preallocated frame and hands it over an
+ * {@link OffThread} ring; a writer on the {@link Threads#IO} lane appends it to a .wav through {@link WavWriter}
+ * and hands the frame back over an {@link OnThread} ring. Every {@link #SYNC_MILLIS} the RIFF
+ * header is patched and the file forced to disk, so a JVM crash mid-take loses at most about a
+ * second of audio and a long take costs {@link #FRAMES} blocks of heap, not the whole take.</p>
+ *
+ * <p>If the writer falls behind (ring full or no free frame) the block is dropped and counted,
+ * the RT thread never waits. The finished take can be played back with judahzone.data.Streaming.</p> */
+@Prism(tags = {"wait-free", "recorder"})
+public final class WriteBehind implements Closeable, WavConstants {
+
+	/** preallocated blocks in flight (~2.7 seconds at 512 frames) */
+	public static final int FRAMES = 256;
+	/** header fix-up + fsync interval */
+	public static final long SYNC_MILLIS = 1000;
+	private static final long IDLE_NANOS = 2_000_000;
+
+	private final WavWriter out;
+	private final float gain;
+	private final OffThread<float[][]> filled = new OffThread<>(FRAMES);
+	private final OnThread<float[][]> free = new OnThread<>(FRAMES, () -> new float[STEREO][JACK_BUFFER]);
+	private final AtomicLong dropped = new AtomicLong();
+	private volatile boolean running = true;
+	private volatile Thread writer;
+	private volatile IOException error;
+	private final CompletableFuture<Void> done;
+
+	/** 16-bit, unity gain */
+	public WriteBehind(File file) throws IOException {
+		this(file, VALID_BITS, 1f);
+	}
+
+	/**@param bitDepth see {@link WavWriter}
+	 * @param gain applied while copying off the RT thread (e.g. TO_LINE) */
+	public WriteBehind(File file, int bitDepth, float gain) throws IOException {
+		out = new WavWriter(file, Constants.sampleRate(), bitDepth, false);
+		this.gain = gain;
+		done = CompletableFuture.runAsync(this::drain, Threads.IO);
+	}
+
+	/** RT: copy a captured stereo block (float[2][JACK_BUFFER]) towards disk.
+	 * @return false if the block was dropped */
+	@PrismRT
+	public boolean push(float[][] block) {
+		float[][] frame = free.poll();
+		if (frame == null) {
+			dropped.incrementAndGet();
+			return false;
+		}
+		float[] right = block[block.length > 1 ? RIGHT : LEFT];
+		for (int i = 0; i < JACK_BUFFER; i++) {
+			frame[LEFT][i] = block[LEFT][i] * gain;
+			frame[RIGHT][i] = right[i] * gain;
+		}
+		if (!filled.offer(frame)) { // can't happen, frames <= ring capacity
+			dropped.incrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	private void drain() {
+		writer = Thread.currentThread();
+		long nextSync = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SYNC_MILLIS);
+		try {
+			while (true) {
+				boolean stopping = !running;
+				float[][] frame = filled.poll();
+				if (frame != null) {
+					out.write(frame);
+					free.offer(frame);
+				} else if (stopping)
+					break;
+				else
+					LockSupport.parkNanos(IDLE_NANOS);
+				if (System.nanoTime() - nextSync >= 0) {
+					out.sync();
+					nextSync += TimeUnit.MILLISECONDS.toNanos(SYNC_MILLIS);
+				}
+			}
+		} catch (IOException e) {
+			error = e;
+			RTLogger.warn(this, e);
+			// keep recycling frames so the RT side only sees drops
+			while (running || !filled.isEmpty()) {
+				float[][] frame = filled.poll();
+				if (frame == null)
+					LockSupport.parkNanos(IDLE_NANOS);
+				else if (!free.offer(frame))
+					break;
+			}
+		} finally {
+			writer = null;
+		}
+	}
+
+	/** @return blocks lost because the writer fell behind or failed */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/** @return frames on disk (or in the writer's batch) so far */
+	public long getFrames() {
+		return out.getFrames();
+	}
+
+	public File getFile() {
+		return out.getFile();
+	}
+
+	/** stop capture, drain what's queued, finalize the header. Not RT. */
+	@Override
+	public void close() throws IOException {
+		running = false;
+		Thread t = writer;
+		if (t != null)
+			LockSupport.unpark(t);
+		try {
+			done.join();
+		} catch (CompletionException e) {
+			if (error == null)
+				error = new IOException(e.getCause());
+		}
+		try {
+			out.close();
+		} catch (IOException e) {
+			if (error == null)
+				error = e;
+		}
+		if (error != null)
+			throw error;
+	}
+}